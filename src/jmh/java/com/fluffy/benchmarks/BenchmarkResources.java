@@ -0,0 +1,35 @@
+package com.fluffy.benchmarks;
+
+import org.apache.poi.util.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Клас, що завантажує ресурси для тестів продуктивності: записані відповіді
+ * джерела даних (omdb/*.json), а також шаблон документа та зображення
+ * додатку.
+ * @author Сивоконь Вадим
+ */
+final class BenchmarkResources {
+    private BenchmarkResources() {
+
+    }
+
+    /**
+     * Повертає вміст ресурсу.
+     * @param name назва ресурсу
+     * @return вміст ресурсу
+     */
+    static byte[] read(String name) {
+        try (InputStream in = BenchmarkResources.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Ресурс " + name + " не знайдено");
+            }
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
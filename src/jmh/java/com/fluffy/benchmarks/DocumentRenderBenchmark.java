@@ -0,0 +1,104 @@
+package com.fluffy.benchmarks;
+
+import com.fluffy.cache.BoundedCacheManager;
+import com.fluffy.cache.FilmKey;
+import com.fluffy.cache.FilmRecord;
+import com.fluffy.configs.ApplicationConfig;
+import com.fluffy.configs.CacheConfig;
+import com.fluffy.dtos.FilmDTO;
+import com.fluffy.dtos.GetFilmDataRequest;
+import com.fluffy.exceptions.FilmServiceException;
+import com.fluffy.services.FilmService;
+import com.fluffy.util.FilmDocument;
+import com.fluffy.util.FilmParser;
+import com.fluffy.util.StageTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тест продуктивності повного створення документа сервісом
+ * (FilmService.getDocument та запис документа) кожним способом створення:
+ * потоковим та за допомогою POI.
+ *
+ * Сервіс створюється з конфігурацією application.properties без зовнішніх
+ * клієнтів: дані про фільм (omdb/tt0078748.json) заздалегідь додаються в
+ * кеш, постер не вказаний (використовується Image.png), а асинхронні етапи
+ * виконуються в потоці тесту. Тест cachedDocument вимірює отримання вже
+ * створеного документа з кешу документів.
+ * @author Сивоконь Вадим
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentRenderBenchmark {
+    private static final String IMDB_ID = "tt0078748";
+
+    @Param({"streaming", "poi"})
+    private String renderer;
+
+    private FilmService service;
+
+    private GetFilmDataRequest request;
+
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws IOException, FilmServiceException {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addLast(new ResourcePropertySource("classpath:application.properties"));
+        env.getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Collections.singletonMap("application.document.renderer", renderer)));
+
+        CacheConfig cacheConfig = new CacheConfig(env);
+        BoundedCacheManager cacheManager = (BoundedCacheManager) cacheConfig.cacheManager();
+        cacheManager.afterPropertiesSet();
+        ApplicationConfig applicationConfig = new ApplicationConfig();
+
+        service = new FilmService(env, applicationConfig.requestParamMapper(env), null, null, null, null, null, null, null, null, Runnable::run,
+                cacheManager, cacheConfig.filmKeyResolver(cacheManager), cacheConfig.titleIndex(), null,
+                applicationConfig.documentTemplate(env), applicationConfig.streamingDocumentTemplate(env),
+                new StageTimer(new SimpleMeterRegistry()));
+
+        FilmDTO film = FilmParser.parse(BenchmarkResources.read("omdb/" + IMDB_ID + ".json"));
+        film.setPoster("N/A");
+        cacheManager.getCache("films").put(FilmKey.ofId(IMDB_ID, null), FilmRecord.of(film, System.currentTimeMillis()));
+
+        request = new GetFilmDataRequest(null, null, null, IMDB_ID, "json");
+        out = new ByteArrayOutputStream(1 << 20);
+    }
+
+    @Benchmark
+    public int getDocument() throws IOException, FilmServiceException {
+        out.reset();
+        try (FilmDocument document = service.getDocument(request).join()) {
+            document.write(out);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public byte[] cachedDocument() throws FilmServiceException {
+        return service.getDocumentBytes(request).join();
+    }
+}
@@ -0,0 +1,101 @@
+package com.fluffy.benchmarks;
+
+import com.fluffy.dtos.ImageDTO;
+import com.fluffy.util.DocumentTemplate;
+import com.fluffy.util.XWPFDocumentManipulator;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тест продуктивності операцій над документом POI: створення екземпляра
+ * скомпільованого шаблону (Template.docx), заповнення полів (bindFields) та
+ * вставлення постера (bindImageToField, Image.png).
+ *
+ * Кожна операція змінює документ, тому виконується над новим екземпляром
+ * шаблону; тривалість самої операції - різниця з тестом newInstance.
+ * @author Сивоконь Вадим
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentTemplateBenchmark {
+    private DocumentTemplate template;
+
+    private Map<String, String> fields;
+
+    private ImageDTO poster;
+
+    @Setup
+    public void setUp() throws IOException {
+        template = DocumentTemplate.compile(new ByteArrayInputStream(BenchmarkResources.read("Template.docx")), "Metascore");
+
+        // значення полів, як їх формує FilmService для omdb/tt0078748.json
+        fields = new HashMap<>();
+        fields.put("type", "movie");
+        fields.put("title", "Alien");
+        fields.put("year", "1979");
+        fields.put("imdbID", "tt0078748");
+        fields.put("rated", "R");
+        fields.put("runtime", "117 min");
+        fields.put("genre", "Horror, Sci-Fi");
+        fields.put("released", "22 Jun 1979");
+        fields.put("plot", "In deep space, the crew of the commercial starship Nostromo is awakened from their cryo-sleep "
+                + "capsules halfway through their journey home to investigate a distress call from an alien vessel.");
+        fields.put("director", "Ridley Scott");
+        fields.put("writer", "Dan O'Bannon, Ronald Shusett");
+        fields.put("actors", "Sigourney Weaver, Tom Skerritt, John Hurt");
+        fields.put("language", "English");
+        fields.put("country", "United Kingdom, United States");
+        fields.put("awards", "Won 1 Oscar. 19 wins & 22 nominations total");
+        fields.put("production", "N/A");
+        fields.put("boxOffice", "$84,206,106");
+        fields.put("metascore", "89");
+        fields.put("imdbRating", "8.5");
+        fields.put("imdbVotes", "929,483");
+        fields.put("author", "FilmInfo");
+        fields.put("currentYear", "2021");
+
+        byte[] data = BenchmarkResources.read("Image.png");
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        poster = new ImageDTO(data, image.getWidth(), image.getHeight(), XWPFDocument.PICTURE_TYPE_PNG, "Poster");
+    }
+
+    @Benchmark
+    public DocumentTemplate.Instance newInstance() throws IOException {
+        return template.newInstance();
+    }
+
+    @Benchmark
+    public DocumentTemplate.Instance bindFields() throws IOException {
+        DocumentTemplate.Instance instance = template.newInstance();
+        XWPFDocumentManipulator.bindFields(instance.getFieldParagraphs(), fields);
+        return instance;
+    }
+
+    @Benchmark
+    public DocumentTemplate.Instance bindImageToField() throws IOException {
+        DocumentTemplate.Instance instance = template.newInstance();
+        XWPFDocumentManipulator.bindImageToField(instance.getFieldParagraphs(), "poster", poster);
+        return instance;
+    }
+}
@@ -0,0 +1,106 @@
+package com.fluffy.benchmarks;
+
+import com.fluffy.dtos.FilmDTO;
+import com.fluffy.dtos.FilmSearchDTO;
+import com.fluffy.util.FilmParser;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тест продуктивності розбору відповідей джерела даних. Потоковий розбір
+ * (FilmParser) порівнюється з розбором через дерево org.json, який додаток
+ * використовував раніше.
+ * @author Сивоконь Вадим
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmParserBenchmark {
+    private byte[] film;
+
+    private byte[] search;
+
+    @Setup
+    public void setUp() {
+        film = BenchmarkResources.read("omdb/tt0078748.json");
+        search = BenchmarkResources.read("omdb/search-alien.json");
+    }
+
+    @Benchmark
+    public FilmDTO parse() {
+        return FilmParser.parse(film);
+    }
+
+    @Benchmark
+    public FilmSearchDTO parseSearch() {
+        return FilmParser.parseSearch(search);
+    }
+
+    @Benchmark
+    public FilmDTO parseJsonObject() {
+        return parseJsonObject(film);
+    }
+
+    // розбір через дерево org.json: рядок, дерево об'єктів, після чого -
+    // копіювання значень у FilmDTO
+    private static FilmDTO parseJsonObject(byte[] json) {
+        JSONObject obj = new JSONObject(new String(json, StandardCharsets.UTF_8));
+        FilmDTO filmDTO = new FilmDTO();
+        filmDTO.setResponse(obj.optString("Response", null));
+        filmDTO.setType(obj.optString("Type", null));
+        filmDTO.setTitle(obj.optString("Title", null));
+        filmDTO.setYear(obj.optString("Year", null));
+        filmDTO.setImdbID(obj.optString("imdbID", null));
+        filmDTO.setRated(obj.optString("Rated", null));
+        filmDTO.setRuntime(obj.optString("Runtime", null));
+        filmDTO.setGenre(obj.optString("Genre", null));
+        filmDTO.setReleased(obj.optString("Released", null));
+        filmDTO.setPlot(obj.optString("Plot", null));
+        filmDTO.setDirector(obj.optString("Director", null));
+        filmDTO.setWriter(obj.optString("Writer", null));
+        filmDTO.setActors(obj.optString("Actors", null));
+        filmDTO.setLanguage(obj.optString("Language", null));
+        filmDTO.setCountry(obj.optString("Country", null));
+        filmDTO.setAwards(obj.optString("Awards", null));
+        filmDTO.setProduction(obj.optString("Production", null));
+        filmDTO.setBoxOffice(obj.optString("BoxOffice", null));
+        filmDTO.setDvd(obj.optString("DVD", null));
+        filmDTO.setWebsite(obj.optString("Website", null));
+        filmDTO.setMetascore(obj.optString("Metascore", null));
+        filmDTO.setImdbRating(obj.optString("imdbRating", null));
+        filmDTO.setImdbVotes(obj.optString("imdbVotes", null));
+        filmDTO.setPoster(obj.optString("Poster", null));
+
+        Map<String, Map<String, String>> ratings = new HashMap<>();
+        JSONArray array = obj.optJSONArray("Ratings");
+        if (array != null) {
+            for (int i = 0; i < array.length(); ++i) {
+                JSONObject rating = array.getJSONObject(i);
+                Map<String, String> value = new HashMap<>();
+                value.put("Source", rating.optString("Source", null));
+                value.put("Value", rating.optString("Value", null));
+                ratings.put(String.valueOf(i), value);
+            }
+        }
+        filmDTO.setRatings(ratings);
+        return filmDTO;
+    }
+}
@@ -0,0 +1,54 @@
+package com.fluffy.benchmarks;
+
+import com.fluffy.util.URLBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тест продуктивності побудови URL запитів до джерела даних - так само, як
+ * їх будує FilmService: за IMDb ID та за назвою (з кодуванням пробілів і
+ * спеціальних символів) з роком випуску.
+ * @author Сивоконь Вадим
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URLBuilderBenchmark {
+    private String id = "tt0078748";
+
+    private String title = "Alien: Resurrection";
+
+    private int year = 1997;
+
+    @Benchmark
+    public String getURLById() {
+        return new URLBuilder("http", "www.omdbapi.com")
+                .addParameter("i", id)
+                .addParameter("r", "json")
+                .addParameter("apikey", "225ea49b")
+                .getURL();
+    }
+
+    @Benchmark
+    public String getURLByTitle() {
+        return new URLBuilder("http", "www.omdbapi.com")
+                .addParameter("t", title)
+                .addParameter("y", year)
+                .addParameter("plot", "full")
+                .addParameter("r", "json")
+                .addParameter("apikey", "225ea49b")
+                .getURL();
+    }
+}
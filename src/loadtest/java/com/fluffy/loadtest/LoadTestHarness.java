@@ -0,0 +1,266 @@
+package com.fluffy.loadtest;
+
+import com.fluffy.Application;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.util.EntityUtils;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Навантажувальний тест додатку. Запускає локальну заглушку джерела даних
+ * (OmdbStub) та додаток, налаштований на неї, після чого надсилає запити
+ * /film у форматах json, xml та docx із заданою інтенсивністю та звітує про
+ * затримки (p50, p95, p99), пропускну здатність та помилки для кожного
+ * формату, а також про статистику кешів і пулу потоків додатку.
+ *
+ * Запити надсилаються за розкладом (відкрита модель навантаження): затримка
+ * запиту відраховується від запланованого часу його надсилання, тому
+ * перевантаження додатку не приховується зменшенням інтенсивності запитів.
+ * Результати запитів, запланованих під час розігріву, не враховуються.
+ *
+ * Параметри вказуються у вигляді назва=значення (з префіксом "--" або без
+ * нього). Параметри тесту (значення за замовчуванням):
+ * load.rate=100 - кількість запитів за секунду;
+ * load.duration-seconds=30 - тривалість вимірювання;
+ * load.warmup-seconds=10 - тривалість розігріву;
+ * load.mix=json:60,xml:20,docx:20 - частки форматів;
+ * load.films=1000 - кількість різних фільмів (рівномірний вибір);
+ * load.connections=500 - максимальна кількість з'єднань із додатком;
+ * stub.latency-ms=50, stub.jitter-ms=20 - затримка джерела даних;
+ * stub.poster-latency-ms=100 - затримка завантаження постера;
+ * stub.error-rate=0 - ймовірність помилки джерела даних.
+ * Решта параметрів (наприклад, application.async.max-pool-size=200)
+ * передаються додатку.
+ * @author Сивоконь Вадим
+ */
+public class LoadTestHarness {
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Точка входу навантажувального тесту.
+     * @param args параметри тесту та додатку
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> appOptions = new LinkedHashMap<>();
+        appOptions.put("server.port", "0");
+        appOptions.put("logging.level.root", "WARN");
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Некоректний параметр: " + arg);
+            }
+            String name = option.substring(0, separator);
+            (name.startsWith("load.") || name.startsWith("stub.") ? options : appOptions).put(name, option.substring(separator + 1));
+        }
+
+        double rate = Double.parseDouble(options.getOrDefault("load.rate", "100"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("load.duration-seconds", "30"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("load.warmup-seconds", "10"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("load.mix", "json:60,xml:20,docx:20"));
+        int films = Integer.parseInt(options.getOrDefault("load.films", "1000"));
+        int connections = Integer.parseInt(options.getOrDefault("load.connections", "500"));
+
+        OmdbStub stub = new OmdbStub(films,
+                Long.parseLong(options.getOrDefault("stub.latency-ms", "50")),
+                Long.parseLong(options.getOrDefault("stub.jitter-ms", "20")),
+                Long.parseLong(options.getOrDefault("stub.poster-latency-ms", "100")),
+                Double.parseDouble(options.getOrDefault("stub.error-rate", "0")));
+        int stubPort = stub.start();
+
+        Path store = Files.createTempDirectory("film-info-loadtest");
+        appOptions.putIfAbsent("application.store.directory", store.toString());
+        appOptions.put("application.data-source.protocol", "http");
+        appOptions.put("application.data-source.host", "127.0.0.1:" + stubPort);
+        List<String> appArgs = new ArrayList<>();
+        for (Map.Entry<String, String> option : appOptions.entrySet()) {
+            appArgs.add("--" + option.getKey() + "=" + option.getValue());
+        }
+        ConfigurableApplicationContext context = SpringApplication.run(Application.class, appArgs.toArray(new String[0]));
+        String baseURL = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setMaxConnTotal(connections)
+                .setMaxConnPerRoute(connections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(5000)
+                        .setSocketTimeout(60000)
+                        .setConnectionRequestTimeout(60000)
+                        .build())
+                .build();
+        client.start();
+
+        try {
+            System.out.printf("Інтенсивність: %.1f запитів/с, розігрів: %d с, вимірювання: %d с, фільмів: %d, формати: %s%n",
+                    rate, warmupSeconds, durationSeconds, films, mix);
+            Map<String, ModeStats> stats = run(client, baseURL, rate, warmupSeconds, durationSeconds, mix, films);
+            report(stats, durationSeconds);
+            System.out.printf("%nДжерело даних: %d запитів, %d постерів, %d помилок%n",
+                    stub.getRequestCount(), stub.getPosterRequestCount(), stub.getErrorCount());
+            System.out.println("\nКеші: " + get(client, baseURL + "/cache/statistics"));
+            System.out.println("\nПул потоків: " + get(client, baseURL + "/executor/statistics"));
+        } finally {
+            client.close();
+            context.close();
+            stub.stop();
+            FileSystemUtils.deleteRecursively(store);
+        }
+    }
+
+    private static Map<String, ModeStats> run(CloseableHttpAsyncClient client, String baseURL, double rate,
+                                              long warmupSeconds, long durationSeconds, Map<String, Integer> mix, int films) {
+        Map<String, ModeStats> stats = new LinkedHashMap<>();
+        List<String> modes = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            stats.put(entry.getKey(), new ModeStats());
+            for (int i = 0; i < entry.getValue(); ++i) {
+                modes.add(entry.getKey());
+            }
+        }
+
+        AtomicInteger inFlight = new AtomicInteger();
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long warmupEnd = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (long i = 0; ; ++i) {
+            long scheduled = start + i * interval;
+            if (scheduled - end >= 0) {
+                break;
+            }
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String mode = modes.get(random.nextInt(modes.size()));
+            String url = baseURL + "/film?id=" + OmdbStub.imdbID(1 + random.nextInt(films)) + "&format=" + mode;
+            ModeStats modeStats = scheduled - warmupEnd >= 0 ? stats.get(mode) : null;
+            inFlight.incrementAndGet();
+            client.execute(new HttpGet(url), new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    int status = response.getStatusLine().getStatusCode();
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    if (modeStats != null) {
+                        modeStats.record(scheduled, status < 400 ? null : String.valueOf(status));
+                    }
+                    inFlight.decrementAndGet();
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    if (modeStats != null) {
+                        modeStats.record(scheduled, e.getClass().getSimpleName());
+                    }
+                    inFlight.decrementAndGet();
+                }
+
+                @Override
+                public void cancelled() {
+                    failed(new IOException("cancelled"));
+                }
+            });
+        }
+
+        // очікування відповідей на вже надіслані запити
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        if (inFlight.get() > 0) {
+            System.out.println("Не отримано відповідей: " + inFlight.get());
+        }
+        return stats;
+    }
+
+    private static void report(Map<String, ModeStats> stats, long durationSeconds) {
+        System.out.printf("%n%-6s %9s %9s %9s %10s %9s %9s %9s %9s%n",
+                "Формат", "Запитів", "Успішних", "Помилок", "Запитів/с", "p50, мс", "p95, мс", "p99, мс", "Макс, мс");
+        for (Map.Entry<String, ModeStats> entry : stats.entrySet()) {
+            ModeStats modeStats = entry.getValue();
+            Histogram latency = modeStats.latency;
+            long total = latency.getTotalCount();
+            long errors = modeStats.getErrorCount();
+            System.out.printf("%-6s %9d %9d %9d %10.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    entry.getKey(), total, total - errors, errors, (double) total / durationSeconds,
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(95) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0, latency.getMaxValue() / 1000.0);
+        }
+        for (Map.Entry<String, ModeStats> entry : stats.entrySet()) {
+            if (!entry.getValue().errors.isEmpty()) {
+                System.out.println("Помилки " + entry.getKey() + ": " + entry.getValue().errors);
+            }
+        }
+    }
+
+    private static String get(CloseableHttpAsyncClient client, String url) throws Exception {
+        return EntityUtils.toString(client.execute(new HttpGet(url), null).get(10, TimeUnit.SECONDS).getEntity());
+    }
+
+    // "json:60,xml:20,docx:20" -> частки форматів
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            if (weight > 0) {
+                result.put(pair[0].trim(), weight);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("Не вказано жодного формату: " + mix);
+        }
+        return result;
+    }
+
+    /**
+     * Статистика запитів одного формату: затримки (у мікросекундах) та
+     * кількість помилок за причиною (код відповіді або тип виключення).
+     */
+    private static final class ModeStats {
+        private final Histogram latency = new ConcurrentHistogram(3);
+
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void record(long scheduled, String error) {
+            latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+            if (error != null) {
+                errors.computeIfAbsent(error, key -> new LongAdder()).increment();
+            }
+        }
+
+        long getErrorCount() {
+            long count = 0;
+            for (LongAdder adder : errors.values()) {
+                count += adder.sum();
+            }
+            return count;
+        }
+    }
+}
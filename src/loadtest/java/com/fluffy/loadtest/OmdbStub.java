@@ -0,0 +1,218 @@
+package com.fluffy.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.poi.util.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Клас локальної заглушки джерела даних (OMDb) для навантажувального
+ * тестування. Відповідає на запити за IMDb ID (i) та назвою (t) записаною
+ * відповіддю (stub/film.json), у якій підставляються IMDb ID, назва та URL
+ * постера, а також віддає постери (Image.png додатку).
+ *
+ * Фільми мають IMDb ID виду tt0000001 та назви виду "Film 1"; кількість
+ * фільмів обмежена, тому запити за іншими ID отримують відповідь "Movie not
+ * found!". Кожна відповідь затримується на встановлений час із випадковим
+ * відхиленням, а частина відповідей (з вказаною ймовірністю) - помилка 503.
+ * Затримка виконується планувальником, тому не займає потоки сервера.
+ * @author Сивоконь Вадим
+ */
+public class OmdbStub {
+    private static final String POSTER_PATH = "/posters/";
+
+    private final int films;
+
+    private final long latencyMillis;
+
+    private final long jitterMillis;
+
+    private final long posterLatencyMillis;
+
+    private final double errorRate;
+
+    private final String filmTemplate;
+
+    private final byte[] poster;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder posterRequests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Створює заглушку джерела даних.
+     * @param films кількість фільмів
+     * @param latencyMillis затримка відповіді з даними про фільм (мс)
+     * @param jitterMillis максимальне випадкове відхилення затримки (мс)
+     * @param posterLatencyMillis затримка відповіді з постером (мс)
+     * @param errorRate ймовірність відповіді з помилкою (від 0 до 1)
+     */
+    public OmdbStub(int films, long latencyMillis, long jitterMillis, long posterLatencyMillis, double errorRate) {
+        this.films = films;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.posterLatencyMillis = posterLatencyMillis;
+        this.errorRate = errorRate;
+        this.filmTemplate = new String(read("stub/film.json"), StandardCharsets.UTF_8).trim();
+        this.poster = read("Image.png");
+    }
+
+    /**
+     * Запускає заглушку на вільному порту.
+     * @return порт заглушки
+     * @throws IOException у випадку помилки запуску сервера
+     */
+    public int start() throws IOException {
+        scheduler = Executors.newScheduledThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Зупиняє заглушку.
+     */
+    public void stop() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Повертає IMDb ID фільму з вказаним номером.
+     * @param index номер фільму (починаючи з 1)
+     * @return IMDb ID
+     */
+    public static String imdbID(int index) {
+        return String.format("tt%07d", index);
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getPosterRequestCount() {
+        return posterRequests.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    private void handle(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        boolean isPoster = path.startsWith(POSTER_PATH);
+        (isPoster ? posterRequests : requests).increment();
+
+        long delay = isPoster ? posterLatencyMillis : latencyMillis;
+        if (jitterMillis > 0) {
+            delay = Math.max(0, delay + ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1));
+        }
+        scheduler.schedule(() -> {
+            try {
+                if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    errors.increment();
+                    respond(exchange, 503, "text/plain", new byte[0]);
+                } else if (isPoster) {
+                    respond(exchange, 200, "image/png", poster);
+                } else {
+                    respond(exchange, 200, "application/json; charset=utf-8", film(exchange).getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                // клієнт закрив з'єднання
+            } finally {
+                exchange.close();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private String film(HttpExchange exchange) {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int index = 0;
+        if (query.containsKey("i")) {
+            String id = query.get("i");
+            if (id.matches("tt\\d+")) {
+                index = Integer.parseInt(id.substring(2));
+            }
+        } else if (query.containsKey("t")) {
+            String title = query.get("t");
+            if (title.regionMatches(true, 0, "Film ", 0, 5) && title.substring(5).matches("\\d+")) {
+                index = Integer.parseInt(title.substring(5));
+            }
+        }
+        if (index < 1 || index > films) {
+            return "{\"Response\":\"False\",\"Error\":\"Movie not found!\"}";
+        }
+        String host = exchange.getLocalAddress().getHostString() + ":" + exchange.getLocalAddress().getPort();
+        return filmTemplate
+                .replace("${imdbID}", imdbID(index))
+                .replace("${title}", "Film " + index)
+                .replace("${year}", String.valueOf(1950 + index % 70))
+                .replace("${poster}", "http://" + host + POSTER_PATH + imdbID(index) + ".png");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> result = new HashMap<>();
+        if (query == null) {
+            return result;
+        }
+        try {
+            for (String pair : query.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    result.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private static byte[] read(String name) {
+        try (InputStream in = OmdbStub.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Ресурс " + name + " не знайдено");
+            }
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
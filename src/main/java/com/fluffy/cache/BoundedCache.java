@@ -0,0 +1,423 @@
+package com.fluffy.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Клас обмеженого кешу. Витісняє записи поодинці за принципом LRU, обмежує
+ * свій розмір як кількістю записів, так і сумарною вагою (у байтах), а також
+ * видаляє записи після спливання часу життя (TTL).
+ *
+ * Для зменшення конкуренції між потоками кеш розділений на сегменти, кожен з
+ * яких має власне блокування та власну частку загального ліміту.
+ *
+ * Значення, відсутнє в кеші, завантажується ({@link #get(Object, Callable)})
+ * лише одним потоком: інші потоки, що запитують той самий ключ під час
+ * завантаження, очікують на його результат. Завантаження виконується поза
+ * блокуванням сегмента, тому не затримує звернення до інших ключів.
+ * @author Сивоконь Вадим
+ */
+public class BoundedCache extends AbstractValueAdaptingCache {
+    /**
+     * Назва кешу.
+     */
+    private final String name;
+
+    /**
+     * Сегменти кешу.
+     */
+    private final Segment[] segments;
+
+    /**
+     * Маска для визначення сегмента за хеш-кодом ключа.
+     */
+    private final int segmentMask;
+
+    /**
+     * Час життя запису в наносекундах (0 - без обмеження).
+     */
+    private final long ttlNanos;
+
+    /**
+     * Функція оцінки ваги (розміру в байтах) значення.
+     */
+    private final ToLongFunction<Object> weigher;
+
+    /**
+     * Завантаження значень, що виконуються на даний момент, за ключем.
+     */
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Створює об'єкт обмеженого кешу.
+     * @param name назва кешу
+     * @param maxEntries максимальна кількість записів
+     * @param maxBytes максимальна сумарна вага записів у байтах
+     * @param ttlSeconds час життя запису в секундах (0 - без обмеження)
+     * @param concurrencyLevel бажана кількість сегментів
+     * @param weigher функція оцінки ваги значення
+     */
+    public BoundedCache(String name, int maxEntries, long maxBytes, long ttlSeconds, int concurrencyLevel, ToLongFunction<Object> weigher) {
+        super(false);
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Ліміти кешу " + name + " повинні бути додатними");
+        }
+        this.name = name;
+        this.ttlNanos = ttlSeconds > 0 ? ttlSeconds * 1_000_000_000L : 0;
+        this.weigher = weigher;
+
+        // кількість сегментів - степінь двійки, що не перевищує ні бажаний
+        // рівень паралелізму, ні кількість записів (кожен сегмент повинен
+        // вміщувати хоча б один запис)
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, maxEntries)));
+        this.segmentMask = segmentCount - 1;
+        this.segments = new Segment[segmentCount];
+        int entriesPerSegment = (maxEntries + segmentCount - 1) / segmentCount;
+        long bytesPerSegment = (maxBytes + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; ++i) {
+            segments[i] = new Segment(entriesPerSegment, bytesPerSegment);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = segmentFor(key).get(key, System.nanoTime());
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = lookup(key);
+        if (value != null) {
+            return (T) fromStoreValue(value);
+        }
+
+        CompletableFuture<Object> promise = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, promise);
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+        try {
+            // значення могло бути додане завантаженням, що завершилося між
+            // пошуком і реєстрацією поточного
+            value = segmentFor(key).get(key, System.nanoTime());
+            if (value == null) {
+                value = valueLoader.call();
+                put(key, value);
+            }
+            promise.complete(value);
+            return (T) value;
+        } catch (Exception e) {
+            promise.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            loading.remove(key, promise);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            // значення null не кешуються (allowNullValues = false)
+            evict(key);
+            return;
+        }
+        long weight = Math.max(1, weigher.applyAsLong(value));
+        Segment segment = segmentFor(key);
+        if (weight > segment.maxBytes) {
+            // значення, що не вміщується в сегмент, не кешується взагалі,
+            // аби не витісняти через нього всі інші записи
+            segment.remove(key);
+            return;
+        }
+        long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+        segment.put(key, new Entry(value, weight, expiresAt));
+        puts.increment();
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Segment segment = segmentFor(key);
+        if (value == null) {
+            Object existing = segment.get(key, System.nanoTime());
+            return existing != null ? new SimpleValueWrapper(existing) : null;
+        }
+        long weight = Math.max(1, weigher.applyAsLong(value));
+        long now = System.nanoTime();
+        Entry entry = weight <= segment.maxBytes ? new Entry(value, weight, ttlNanos > 0 ? now + ttlNanos : 0) : null;
+        Object existing = segment.putIfAbsent(key, entry, now);
+        if (existing != null) {
+            return new SimpleValueWrapper(existing);
+        }
+        if (entry != null) {
+            puts.increment();
+        }
+        return null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        segmentFor(key).remove(key);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Повертає кількість влучань у кеш.
+     * @return кількість влучань
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Повертає кількість промахів.
+     * @return кількість промахів
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Повертає кількість додавань записів.
+     * @return кількість додавань
+     */
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    /**
+     * Повертає кількість записів, витіснених через перевищення лімітів.
+     * @return кількість витіснень
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Повертає кількість записів, видалених через спливання часу життя.
+     * @return кількість застарілих записів
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * Повертає поточну кількість записів.
+     * @return кількість записів
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Повертає поточну сумарну вагу записів у байтах.
+     * @return вага записів
+     */
+    public long weightedSize() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    private Segment segmentFor(Object key) {
+        int h = key.hashCode();
+        // розподіл старших бітів хешу для рівномірності вибору сегмента
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    /**
+     * Запис кешу.
+     */
+    private static final class Entry {
+        private final Object value;
+        private final long weight;
+        private final long expiresAt;
+
+        private Entry(Object value, long weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Сегмент кешу - LRU-список записів під власним блокуванням.
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<Object, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+        private final long maxBytes;
+        private long bytes;
+
+        private Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        private Object get(Object key, long now) {
+            lock.lock();
+            try {
+                Entry entry = map.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.isExpired(now)) {
+                    map.remove(key);
+                    bytes -= entry.weight;
+                    expirations.increment();
+                    return null;
+                }
+                return entry.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(Object key, Entry entry) {
+            lock.lock();
+            try {
+                Entry previous = map.put(key, entry);
+                if (previous != null) {
+                    bytes -= previous.weight;
+                }
+                bytes += entry.weight;
+                evictIfNeeded();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // перевірка наявності та додавання виконуються під одним
+        // блокуванням; запис null лише перевіряє наявність
+        private Object putIfAbsent(Object key, Entry entry, long now) {
+            lock.lock();
+            try {
+                Entry existing = map.get(key);
+                if (existing != null) {
+                    if (!existing.isExpired(now)) {
+                        return existing.value;
+                    }
+                    map.remove(key);
+                    bytes -= existing.weight;
+                    expirations.increment();
+                }
+                if (entry != null) {
+                    map.put(key, entry);
+                    bytes += entry.weight;
+                    evictIfNeeded();
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void remove(Object key) {
+            lock.lock();
+            try {
+                Entry entry = map.remove(key);
+                if (entry != null) {
+                    bytes -= entry.weight;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                map.clear();
+                bytes = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long weight() {
+            lock.lock();
+            try {
+                return bytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // витіснення найдавніше використаних записів, поки сегмент не
+        // вкладеться у свої ліміти
+        private void evictIfNeeded() {
+            Iterator<Map.Entry<Object, Entry>> iterator = map.entrySet().iterator();
+            while ((map.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                iterator.remove();
+                bytes -= eldest.weight;
+                evictions.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.fluffy.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Клас менеджера кешів, що керує набором обмежених кешів із заздалегідь
+ * визначеними назвами. Кеші, що не були зареєстровані, не створюються.
+ * @author Сивоконь Вадим
+ */
+public class BoundedCacheManager extends AbstractCacheManager {
+    /**
+     * Зареєстровані кеші.
+     */
+    private final List<BoundedCache> caches = new ArrayList<>();
+
+    /**
+     * Реєструє кеш.
+     * @param cache кеш
+     * @return об'єкт менеджера
+     */
+    public BoundedCacheManager addCache(BoundedCache cache) {
+        caches.add(cache);
+        return this;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return caches;
+    }
+}
@@ -0,0 +1,67 @@
+package com.fluffy.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Клас, що публікує статистику обмеженого кешу як метрики: стандартні
+ * метрики кешів (cache.gets, cache.puts, cache.evictions, cache.size), а
+ * також кількість записів, видалених через спливання часу життя
+ * (cache.expirations), та сумарну вагу записів (cache.weighted.size).
+ * @author Сивоконь Вадим
+ */
+public class BoundedCacheMeterBinder extends CacheMeterBinder {
+    private final BoundedCache cache;
+
+    /**
+     * Створює об'єкт для публікації метрик кешу.
+     * @param cache кеш
+     * @param tags додаткові теги метрик
+     */
+    public BoundedCacheMeterBinder(BoundedCache cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+        this.cache = cache;
+    }
+
+    @Override
+    protected Long size() {
+        return cache.size();
+    }
+
+    @Override
+    protected long hitCount() {
+        return cache.getHitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        return cache.getMissCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        return cache.getPutCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("cache.expirations", cache, BoundedCache::getExpirationCount)
+                .tags(getTagsWithCacheName())
+                .description("Кількість записів, видалених через спливання часу життя")
+                .register(registry);
+        Gauge.builder("cache.weighted.size", cache, BoundedCache::weightedSize)
+                .tags(getTagsWithCacheName())
+                .description("Сумарна вага записів")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fluffy.cache;
+
+import com.fluffy.dtos.FilmDTO;
+import org.springframework.http.HttpEntity;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Клас, що надає приблизну оцінку розміру (у байтах) значень, які
+ * зберігаються в кеші. Точний розмір об'єктів у пам'яті JVM не визначається -
+ * достатньо оцінки, пропорційної фактичному обсягу даних.
+ * @author Сивоконь Вадим
+ */
+public final class CacheWeigher {
+    /**
+     * Накладні витрати на заголовок об'єкта та посилання.
+     */
+    private static final long OBJECT_OVERHEAD = 16;
+
+    /**
+     * Вага значень, розмір яких оцінити неможливо.
+     */
+    private static final long DEFAULT_WEIGHT = 1024;
+
+    private CacheWeigher() {
+
+    }
+
+    /**
+     * Повертає приблизний розмір значення в байтах.
+     * @param value значення
+     * @return розмір у байтах
+     */
+    public static long weigh(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return OBJECT_OVERHEAD * 2 + 2L * ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return OBJECT_OVERHEAD + ((byte[]) value).length;
+        } else if (value instanceof ByteBuffer) {
+            return OBJECT_OVERHEAD * 2 + ((ByteBuffer) value).capacity();
+        } else if (value instanceof SearchPage) {
+            SearchPage page = (SearchPage) value;
+            long weight = OBJECT_OVERHEAD * 3 + weigh(page.getBody());
+            for (String imdbID : page.getImdbIDs()) {
+                weight += weigh(imdbID);
+            }
+            return weight;
+        } else if (value instanceof EncodedBody) {
+            return OBJECT_OVERHEAD * 2 + weigh(((EncodedBody) value).getBody()) + weigh(((EncodedBody) value).getGzipBody());
+        } else if (value instanceof FilmRecord) {
+            return OBJECT_OVERHEAD * 2 + weigh(((FilmRecord) value).getHash()) + weighFilm(((FilmRecord) value).getFilm());
+        } else if (value instanceof FilmDTO) {
+            return weighFilm((FilmDTO) value);
+        } else if (value instanceof HttpEntity) {
+            HttpEntity<?> entity = (HttpEntity<?>) value;
+            return OBJECT_OVERHEAD * 4 + entity.getHeaders().size() * 64L + weigh(entity.getBody());
+        }
+        return DEFAULT_WEIGHT;
+    }
+
+    private static long weighFilm(FilmDTO film) {
+        long weight = OBJECT_OVERHEAD * 32;
+        for (String field : new String[] {film.getType(), film.getTitle(), film.getYear(), film.getImdbID(),
+                film.getRated(), film.getRuntime(), film.getGenre(), film.getReleased(), film.getPlot(),
+                film.getDirector(), film.getWriter(), film.getActors(), film.getLanguage(), film.getCountry(),
+                film.getAwards(), film.getProduction(), film.getBoxOffice(), film.getDvd(), film.getWebsite(),
+                film.getMetascore(), film.getImdbRating(), film.getImdbVotes(), film.getPoster(),
+                film.getResponse(), film.getError()}) {
+            weight += weigh(field);
+        }
+        if (film.getRatings() != null) {
+            for (Map<String, String> rating : film.getRatings().values()) {
+                weight += OBJECT_OVERHEAD * 8;
+                for (String field : rating.values()) {
+                    weight += weigh(field);
+                }
+            }
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,70 @@
+package com.fluffy.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Клас тіла відповіді, що зберігається в кеші: тіло, закодоване в UTF-8, та
+ * його стиснутий (gzip) варіант. Стиснення виконується один раз під час
+ * створення запису, тому відповідь клієнту, що підтримує gzip, записується
+ * без повторного стиснення.
+ *
+ * Стиснутий варіант відсутній (null), якщо тіло занадто мале або стиснення
+ * не зменшує його розмір.
+ * @author Сивоконь Вадим
+ */
+public final class EncodedBody {
+    private final byte[] body;
+
+    private final byte[] gzipBody;
+
+    private EncodedBody(byte[] body, byte[] gzipBody) {
+        this.body = body;
+        this.gzipBody = gzipBody;
+    }
+
+    /**
+     * Створює запис для тіла відповіді та стискає його.
+     * @param body тіло відповіді
+     * @param minSize мінімальний розмір тіла (у байтах), для якого
+     *                створюється стиснутий варіант
+     * @param level рівень стиснення (від 1 до 9)
+     * @return запис кешу
+     */
+    public static EncodedBody of(byte[] body, int minSize, int level) {
+        byte[] gzipBody = null;
+        if (body.length >= minSize) {
+            gzipBody = gzip(body, level);
+            if (gzipBody.length >= body.length) {
+                gzipBody = null;
+            }
+        }
+        return new EncodedBody(body, gzipBody);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public byte[] getGzipBody() {
+        return gzipBody;
+    }
+
+    private static byte[] gzip(byte[] data, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (OutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(data);
+        } catch (IOException e) {
+            // запис у пам'ять не завершується помилкою
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
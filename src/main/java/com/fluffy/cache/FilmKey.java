@@ -0,0 +1,160 @@
+package com.fluffy.cache;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Клас канонічного ключа фільму. Різні написання одного й того самого запиту
+ * (регістр, зайві пробіли, запис року) приводяться до одного ключа, тому
+ * відповідають одному запису в кеші.
+ *
+ * Ключ ідентифікує фільм або за IMDb ID, або за назвою та роком випуску.
+ * Додатково ключ містить варіант опису сюжету.
+ * @author Сивоконь Вадим
+ */
+public final class FilmKey {
+    /**
+     * Варіант опису сюжету, що використовується джерелом даних за
+     * замовчуванням.
+     */
+    public static final String DEFAULT_PLOT = "short";
+
+    /**
+     * IMDb ID фільму (у нижньому регістрі).
+     */
+    private final String id;
+
+    /**
+     * Нормалізована назва фільму.
+     */
+    private final String title;
+
+    /**
+     * Рік випуску.
+     */
+    private final Integer year;
+
+    /**
+     * Варіант опису сюжету.
+     */
+    private final String plot;
+
+    private FilmKey(String id, String title, Integer year, String plot) {
+        this.id = id;
+        this.title = title;
+        this.year = year;
+        this.plot = plot;
+    }
+
+    /**
+     * Створює ключ фільму за його IMDb ID.
+     * @param id IMDb ID
+     * @param plot варіант опису сюжету
+     * @return ключ
+     */
+    public static FilmKey ofId(String id, String plot) {
+        return new FilmKey(normalizeId(id), null, null, normalizePlot(plot));
+    }
+
+    /**
+     * Створює ключ фільму за його назвою та роком випуску.
+     * @param title назва фільму
+     * @param year рік випуску (може бути null)
+     * @param plot варіант опису сюжету
+     * @return ключ
+     */
+    public static FilmKey ofTitle(String title, Integer year, String plot) {
+        return new FilmKey(null, normalizeTitle(title), year, normalizePlot(plot));
+    }
+
+    /**
+     * Повертає нормалізований IMDb ID.
+     * @param id IMDb ID
+     * @return нормалізований IMDb ID
+     */
+    public static String normalizeId(String id) {
+        return id.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Повертає нормалізовану назву: без пробілів на початку та в кінці, з
+     * одинарними пробілами між словами, у нижньому регістрі.
+     * @param title назва фільму
+     * @return нормалізована назва
+     */
+    public static String normalizeTitle(String title) {
+        return title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizePlot(String plot) {
+        return plot == null || plot.isEmpty() ? DEFAULT_PLOT : plot;
+    }
+
+    /**
+     * Повертає ключ того самого варіанта фільму, але за вказаним IMDb ID.
+     * @param id IMDb ID
+     * @return ключ за IMDb ID
+     */
+    public FilmKey withId(String id) {
+        return ofId(id, plot);
+    }
+
+    /**
+     * Повертає ключ, що ідентифікує лише назву та рік - без варіанта опису.
+     * Використовується для співставлення назви з IMDb ID.
+     * @return ключ назви
+     */
+    public FilmKey titleOnly() {
+        return new FilmKey(null, title, year, null);
+    }
+
+    /**
+     * Перевіряє, чи ідентифікує ключ фільм за IMDb ID.
+     * @return так чи ні
+     */
+    public boolean hasId() {
+        return id != null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public String getPlot() {
+        return plot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FilmKey)) {
+            return false;
+        }
+        FilmKey other = (FilmKey) o;
+        return Objects.equals(id, other.id)
+                && Objects.equals(title, other.title)
+                && Objects.equals(year, other.year)
+                && Objects.equals(plot, other.plot);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, year, plot);
+    }
+
+    @Override
+    public String toString() {
+        return (id != null ? "id=" + id : "title=" + title + (year != null ? ",year=" + year : ""))
+                + (plot != null ? ",plot=" + plot : "");
+    }
+}
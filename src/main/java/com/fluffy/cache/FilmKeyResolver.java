@@ -0,0 +1,50 @@
+package com.fluffy.cache;
+
+import org.springframework.cache.Cache;
+
+/**
+ * Клас, що співставляє ключі фільмів за назвою (та роком випуску) з ключами
+ * за IMDb ID. Співставлення вивчаються з відповідей джерела даних, тому після
+ * першого запиту за назвою наступні запити за тією самою назвою звертаються до
+ * того самого запису кешу, що й запити за IMDb ID.
+ * @author Сивоконь Вадим
+ */
+public class FilmKeyResolver {
+    /**
+     * Кеш співставлень: ключ назви -> IMDb ID.
+     */
+    private final Cache aliases;
+
+    /**
+     * Створює об'єкт, що співставляє ключі фільмів.
+     * @param aliases кеш співставлень
+     */
+    public FilmKeyResolver(Cache aliases) {
+        this.aliases = aliases;
+    }
+
+    /**
+     * Повертає канонічний ключ: ключ за IMDb ID, якщо він відомий для
+     * вказаної назви, або вихідний ключ в іншому випадку.
+     * @param key ключ фільму
+     * @return канонічний ключ
+     */
+    public FilmKey resolve(FilmKey key) {
+        if (key.hasId()) {
+            return key;
+        }
+        String id = aliases.get(key.titleOnly(), String.class);
+        return id != null ? key.withId(id) : key;
+    }
+
+    /**
+     * Запам'ятовує IMDb ID фільму, знайденого за ключем.
+     * @param key ключ, за яким був знайдений фільм
+     * @param id IMDb ID знайденого фільму
+     */
+    public void learn(FilmKey key, String id) {
+        if (!key.hasId() && id != null && !id.isEmpty()) {
+            aliases.put(key.titleOnly(), FilmKey.normalizeId(id));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.fluffy.cache;
+
+import com.fluffy.dtos.FilmDTO;
+import com.fluffy.util.FilmSerializer;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Клас запису кешу даних про фільм: дані про фільм разом із хешем їх вмісту
+ * та часом отримання. Хеш обчислюється один раз під час створення запису,
+ * тому валідатори відповідей (ETag, Last-Modified) визначаються без
+ * повторного формування відповіді.
+ * @author Сивоконь Вадим
+ */
+public final class FilmRecord {
+    private final FilmDTO film;
+
+    /**
+     * Хеш вмісту (MD5 представлення у форматі JSON, шістнадцятковий).
+     */
+    private final String hash;
+
+    /**
+     * Час отримання даних (у мс від початку епохи).
+     */
+    private final long lastModified;
+
+    private FilmRecord(FilmDTO film, String hash, long lastModified) {
+        this.film = film;
+        this.hash = hash;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Створює запис для даних про фільм.
+     * @param film дані про фільм
+     * @param lastModified час отримання даних (у мс від початку епохи)
+     * @return запис кешу
+     */
+    public static FilmRecord of(FilmDTO film, long lastModified) {
+        String hash = DigestUtils.md5DigestAsHex(FilmSerializer.toJson(film).getBytes(StandardCharsets.UTF_8));
+        return new FilmRecord(film, hash, lastModified);
+    }
+
+    public FilmDTO getFilm() {
+        return film;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
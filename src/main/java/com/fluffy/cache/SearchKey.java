@@ -0,0 +1,95 @@
+package com.fluffy.cache;
+
+import java.util.Objects;
+
+/**
+ * Клас канонічного ключа сторінки результатів пошуку фільмів. Різні
+ * написання одного й того самого пошукового запиту відповідають одному
+ * ключу (див. {@link FilmKey#normalizeTitle(String)}).
+ * @author Сивоконь Вадим
+ */
+public final class SearchKey {
+    /**
+     * Нормалізований пошуковий запит (назва фільму).
+     */
+    private final String query;
+
+    /**
+     * Рік випуску (може бути null).
+     */
+    private final Integer year;
+
+    /**
+     * Тип результатів: фільм, серіал, епізод (може бути null).
+     */
+    private final String type;
+
+    /**
+     * Номер сторінки (починаючи з 1).
+     */
+    private final int page;
+
+    /**
+     * Створює ключ сторінки результатів пошуку.
+     * @param query пошуковий запит
+     * @param year рік випуску (може бути null)
+     * @param type тип результатів (може бути null)
+     * @param page номер сторінки
+     */
+    public SearchKey(String query, Integer year, String type, int page) {
+        this.query = FilmKey.normalizeTitle(query);
+        this.year = year;
+        this.type = type;
+        this.page = page;
+    }
+
+    /**
+     * Повертає ключ іншої сторінки результатів того самого запиту.
+     * @param page номер сторінки
+     * @return ключ сторінки
+     */
+    public SearchKey withPage(int page) {
+        return new SearchKey(query, year, type, page);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SearchKey)) {
+            return false;
+        }
+        SearchKey other = (SearchKey) o;
+        return page == other.page
+                && query.equals(other.query)
+                && Objects.equals(year, other.year)
+                && Objects.equals(type, other.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(query, year, type, page);
+    }
+
+    @Override
+    public String toString() {
+        return "query=" + query + (year != null ? ",year=" + year : "") + (type != null ? ",type=" + type : "") + ",page=" + page;
+    }
+}
@@ -0,0 +1,36 @@
+package com.fluffy.cache;
+
+import java.util.List;
+
+/**
+ * Клас сторінки результатів пошуку, що зберігається в кеші: тіло відповіді,
+ * вже закодоване в UTF-8, загальна кількість результатів запиту, необхідна
+ * для визначення наявності наступної сторінки, та IMDb ID знайдених фільмів,
+ * необхідні для завантаження даних про них.
+ * @author Сивоконь Вадим
+ */
+public final class SearchPage {
+    private final byte[] body;
+
+    private final int totalResults;
+
+    private final List<String> imdbIDs;
+
+    public SearchPage(byte[] body, int totalResults, List<String> imdbIDs) {
+        this.body = body;
+        this.totalResults = totalResults;
+        this.imdbIDs = imdbIDs;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public int getTotalResults() {
+        return totalResults;
+    }
+
+    public List<String> getImdbIDs() {
+        return imdbIDs;
+    }
+}
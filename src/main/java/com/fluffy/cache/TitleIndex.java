@@ -0,0 +1,228 @@
+package com.fluffy.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Клас префіксного індексу назв фільмів, що використовується для підказок
+ * під час введення назви. Індекс містить усі фільми, дані про які отримував
+ * додаток, та зберігається в пам'яті.
+ *
+ * Ключі індексу - нормалізовані назви (див.
+ * {@link FilmKey#normalizeTitle(String)}), а також їх частини, що починаються
+ * з кожного наступного слова, тому фільм знаходиться як за початком назви,
+ * так і за початком будь-якого слова в ній. Ключі впорядковані, тому всі
+ * ключі з вказаним префіксом утворюють неперервний діапазон, що знаходиться
+ * за логарифмічний час.
+ *
+ * Підказки впорядковуються так: точний збіг назви, збіг початку назви, збіг
+ * початку слова, після чого - за популярністю фільму (кількістю голосів
+ * IMDb). Для коротких префіксів діапазон може бути дуже великим, тому
+ * розглядається не більше встановленої кількості ключів.
+ * @author Сивоконь Вадим
+ */
+public class TitleIndex {
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final char MAX_CHAR = '\uffff';
+
+    private static final Comparator<Match> RANK = Comparator
+            .comparing((Match match) -> match.exact)
+            .thenComparing(match -> match.titleStart)
+            .thenComparingLong(match -> match.suggestion.weight)
+            .thenComparing(match -> match.suggestion.title, Comparator.reverseOrder());
+
+    /**
+     * Ключ (частина назви + IMDb ID) -> запис індексу.
+     */
+    private final ConcurrentSkipListMap<String, Entry> index = new ConcurrentSkipListMap<>();
+
+    /**
+     * IMDb ID -> підказка. Використовується для оновлення записів фільму.
+     */
+    private final Map<String, Suggestion> suggestions = new ConcurrentHashMap<>();
+
+    private final int maxEntries;
+
+    private final int maxScan;
+
+    /**
+     * Створює порожній індекс.
+     * @param maxEntries максимальна кількість фільмів в індексі
+     * @param maxScan максимальна кількість ключів, що розглядаються під час
+     *                пошуку підказок
+     */
+    public TitleIndex(int maxEntries, int maxScan) {
+        this.maxEntries = maxEntries;
+        this.maxScan = maxScan;
+    }
+
+    /**
+     * Додає фільм до індексу або оновлює його запис. Популярність, що не
+     * відома (0), не замінює відому раніше.
+     * @param title назва фільму
+     * @param year рік випуску
+     * @param imdbID IMDb ID
+     * @param type тип (фільм, серіал, епізод)
+     * @param weight популярність фільму (кількість голосів IMDb)
+     */
+    public void add(String title, String year, String imdbID, String type, long weight) {
+        if (title == null || title.trim().isEmpty() || imdbID == null || imdbID.isEmpty()) {
+            return;
+        }
+        String id = FilmKey.normalizeId(imdbID);
+        // оновлення відбуваються значно рідше, ніж пошук, тому виконуються
+        // послідовно, а пошук - без блокувань
+        synchronized (this) {
+            Suggestion old = suggestions.get(id);
+            if (old == null && suggestions.size() >= maxEntries) {
+                return;
+            }
+            if (old != null) {
+                weight = weight > 0 ? weight : old.weight;
+                if (old.title.equals(title) && old.weight == weight) {
+                    return;
+                }
+                for (String key : getKeys(old.title, id)) {
+                    index.remove(key);
+                }
+            }
+            Suggestion suggestion = new Suggestion(title, year, imdbID, type, weight);
+            suggestions.put(id, suggestion);
+            List<String> keys = getKeys(title, id);
+            for (int i = 0; i < keys.size(); ++i) {
+                index.put(keys.get(i), new Entry(suggestion, i == 0));
+            }
+        }
+    }
+
+    /**
+     * Повертає підказки для вказаного початку назви.
+     * @param prefix початок назви або слова в ній
+     * @param limit максимальна кількість підказок
+     * @return підказки, впорядковані за релевантністю
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = FilmKey.normalizeTitle(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // один фільм може знайтися за кількома словами назви - враховується
+        // кращий збіг
+        Map<Suggestion, Match> candidates = new HashMap<>();
+        int scanned = 0;
+        for (Map.Entry<String, Entry> e : index.subMap(normalized, normalized + MAX_CHAR).entrySet()) {
+            if (++scanned > maxScan) {
+                break;
+            }
+            Entry entry = e.getValue();
+            boolean exact = entry.titleStart && e.getKey().charAt(normalized.length()) == KEY_SEPARATOR;
+            candidates.merge(entry.suggestion, new Match(entry.suggestion, exact, entry.titleStart),
+                    (a, b) -> RANK.compare(a, b) >= 0 ? a : b);
+        }
+
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, RANK);
+        for (Match match : candidates.values()) {
+            top.add(match);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Suggestion> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().suggestion);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Повертає кількість фільмів в індексі.
+     * @return кількість фільмів
+     */
+    public int size() {
+        return suggestions.size();
+    }
+
+    // ключі: нормалізована назва та її частини, що починаються з кожного
+    // наступного слова; IMDb ID робить ключі різних фільмів з однаковими
+    // назвами унікальними
+    private static List<String> getKeys(String title, String id) {
+        String normalized = FilmKey.normalizeTitle(title);
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized + KEY_SEPARATOR + id);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1) + KEY_SEPARATOR + id);
+        }
+        return keys;
+    }
+
+    /**
+     * Підказка - короткі дані про фільм.
+     */
+    public static final class Suggestion {
+        private final String title;
+        private final String year;
+        private final String imdbID;
+        private final String type;
+        private final long weight;
+
+        private Suggestion(String title, String year, String imdbID, String type, long weight) {
+            this.title = title;
+            this.year = year;
+            this.imdbID = imdbID;
+            this.type = type;
+            this.weight = weight;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getYear() {
+            return year;
+        }
+
+        public String getImdbID() {
+            return imdbID;
+        }
+
+        public String getType() {
+            return type;
+        }
+    }
+
+    private static final class Entry {
+        private final Suggestion suggestion;
+
+        /**
+         * Чи відповідає ключ початку назви (а не наступному слову).
+         */
+        private final boolean titleStart;
+
+        private Entry(Suggestion suggestion, boolean titleStart) {
+            this.suggestion = suggestion;
+            this.titleStart = titleStart;
+        }
+    }
+
+    private static final class Match {
+        private final Suggestion suggestion;
+        private final boolean exact;
+        private final boolean titleStart;
+
+        private Match(Suggestion suggestion, boolean exact, boolean titleStart) {
+            this.suggestion = suggestion;
+            this.exact = exact;
+            this.titleStart = titleStart;
+        }
+    }
+}
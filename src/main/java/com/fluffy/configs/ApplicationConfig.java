@@ -1,10 +1,14 @@
 package com.fluffy.configs;
 
+import com.fluffy.util.DocumentTemplate;
 import com.fluffy.util.RequestParamMapper;
+import com.fluffy.util.StreamingDocumentTemplate;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
-import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Клас, що відповідає за конфігурацію бінів.
@@ -12,17 +16,36 @@ import org.springframework.web.client.RestTemplate;
  */
 @Configuration
 public class ApplicationConfig {
+    @Bean
+    public RequestParamMapper requestParamMapper(Environment env) {
+        return new RequestParamMapper(env);
+    }
+
     /**
-     * Повертає бін, що відповідає за отримання інформації від джерела даних.
-     * @return бін для отримання інформації від джерела даних
+     * Повертає бін скомпільованого шаблону документа. Шаблон читається та
+     * аналізується один раз під час запуску додатку.
+     * @param env бін для отримання змінних із application.properties
+     * @return скомпільований шаблон документа
+     * @throws IOException у випадку помилки читання шаблону
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public DocumentTemplate documentTemplate(Environment env) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(env.getProperty("application.document.template"))) {
+            return DocumentTemplate.compile(in, env.getProperty("application.document.ratings-table-content"));
+        }
     }
 
+    /**
+     * Повертає бін шаблону документа для потокового створення документів.
+     * Шаблон аналізується один раз під час запуску додатку.
+     * @param env бін для отримання змінних із application.properties
+     * @return шаблон документа для потокового створення документів
+     * @throws IOException у випадку помилки читання шаблону
+     */
     @Bean
-    public RequestParamMapper requestParamMapper(Environment env) {
-        return new RequestParamMapper(env);
+    public StreamingDocumentTemplate streamingDocumentTemplate(Environment env) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(env.getProperty("application.document.template"))) {
+            return StreamingDocumentTemplate.compile(in, env.getProperty("application.document.ratings-table-content"));
+        }
     }
 }
@@ -1,11 +1,11 @@
 package com.fluffy.configs;
 
+import com.fluffy.util.CountingRejectedExecutionHandler;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
-import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
@@ -13,6 +13,9 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration
 @EnableAsync
 public class AsyncConfig implements AsyncConfigurer {
@@ -24,12 +27,17 @@ public class AsyncConfig implements AsyncConfigurer {
 
     @Override
     @Bean("threadPoolTaskExecutor")
-    public TaskExecutor getAsyncExecutor() {
+    public ThreadPoolTaskExecutor getAsyncExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         // мінімальна кількість потоків, що будуть використовуватися
         executor.setCorePoolSize(env.getProperty("application.async.core-pool-size", int.class));
         // максимальна кількість потоків
         executor.setMaxPoolSize(env.getProperty("application.async.max-pool-size", int.class));
+        // обмежена черга: після її заповнення створюються додаткові потоки
+        // (до максимальної кількості), а далі задачі відхиляються
+        executor.setQueueCapacity(env.getProperty("application.async.queue-capacity", int.class));
+        executor.setKeepAliveSeconds(env.getProperty("application.async.keep-alive-seconds", int.class));
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler());
         // додаток не буде закриватися, поки не виконається запит
         executor.setWaitForTasksToCompleteOnShutdown(env.getProperty("application.async.wait-for-tasks-to-complete-on-shutdown", boolean.class));
         // використовуваний префікс для іменування потоків
@@ -37,6 +45,26 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Повертає бін політики відхилення задач пулом потоків. Політика abort
+     * відхиляє задачу винятком (відповідь клієнту - перевантаження сервісу),
+     * caller-runs виконує її в потоці, що її передав.
+     * @return політика відхилення задач
+     */
+    @Bean
+    public CountingRejectedExecutionHandler rejectedExecutionHandler() {
+        String policy = env.getProperty("application.async.rejection-policy");
+        RejectedExecutionHandler delegate;
+        if ("abort".equals(policy)) {
+            delegate = new ThreadPoolExecutor.AbortPolicy();
+        } else if ("caller-runs".equals(policy)) {
+            delegate = new ThreadPoolExecutor.CallerRunsPolicy();
+        } else {
+            throw new IllegalStateException("Невідома політика відхилення задач: " + policy);
+        }
+        return new CountingRejectedExecutionHandler(delegate);
+    }
+
     @Bean
     protected WebMvcConfigurer webMvcConfigurer() {
         return new WebMvcConfigurer() {
@@ -1,16 +1,58 @@
 package com.fluffy.configs;
 
+import com.fluffy.cache.BoundedCache;
+import com.fluffy.cache.BoundedCacheManager;
+import com.fluffy.cache.CacheWeigher;
+import com.fluffy.cache.FilmKeyResolver;
+import com.fluffy.cache.TitleIndex;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
+/**
+ * Клас, що відповідає за конфігурацію кешів. Ліміти кожного кешу задаються
+ * у application.properties із префіксом application.cache.назва-кешу.
+ * @author Сивоконь Вадим
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
+    private final Environment env;
+
+    public CacheConfig(Environment env) {
+        this.env = env;
+    }
+
     @Bean
     public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("responseBodies", "documents");
+        return new BoundedCacheManager()
+                .addCache(createCache("films", "films"))
+                .addCache(createCache("bodies", "bodies"))
+                .addCache(createCache("searchPages", "search-pages"))
+                .addCache(createCache("documents", "documents"))
+                .addCache(createCache("filmAliases", "film-aliases"));
+    }
+
+    @Bean
+    public FilmKeyResolver filmKeyResolver(CacheManager cacheManager) {
+        return new FilmKeyResolver(cacheManager.getCache("filmAliases"));
+    }
+
+    @Bean
+    public TitleIndex titleIndex() {
+        return new TitleIndex(env.getProperty("application.suggest.max-entries", int.class),
+                env.getProperty("application.suggest.max-scan", int.class));
+    }
+
+    private BoundedCache createCache(String name, String propertyName) {
+        String prefix = "application.cache." + propertyName;
+        return new BoundedCache(name,
+                env.getProperty(prefix + ".max-entries", int.class),
+                env.getProperty(prefix + ".max-bytes", long.class),
+                env.getProperty(prefix + ".ttl-seconds", long.class),
+                env.getProperty("application.cache.concurrency-level", int.class),
+                CacheWeigher::weigh);
     }
 }
@@ -0,0 +1,171 @@
+package com.fluffy.configs;
+
+import com.fluffy.util.NonBlockingHttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Клас, що відповідає за конфігурацію HTTP-клієнтів для звернень до
+ * зовнішніх сервісів. Звернення до джерела даних та завантаження постерів
+ * виконуються через окремі пули з'єднань, тому повільні сервери зображень не
+ * займають з'єднання, потрібні для отримання даних про фільми.
+ *
+ * Для кожного пулу створюється як блокуючий клієнт (RestTemplate), так і
+ * неблокуючий. Який із них використовується, визначається параметром
+ * application.http.mode.
+ * @author Сивоконь Вадим
+ */
+@Configuration
+public class HttpClientConfig {
+    private final Environment env;
+
+    public HttpClientConfig(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * Повертає бін фабрики запитів до джерела даних. Фабрика є біном, аби
+     * під час зупинки додатку її пул з'єднань було закрито.
+     * @return фабрика запитів до джерела даних
+     */
+    @Bean
+    public HttpComponentsClientHttpRequestFactory dataSourceRequestFactory() {
+        return createRequestFactory("data-source");
+    }
+
+    /**
+     * Повертає бін фабрики запитів для завантаження постерів.
+     * @return фабрика запитів для завантаження постерів
+     */
+    @Bean
+    public HttpComponentsClientHttpRequestFactory posterRequestFactory() {
+        return createRequestFactory("poster");
+    }
+
+    /**
+     * Повертає бін, що відповідає за отримання інформації від джерела даних.
+     * @param requestFactory фабрика запитів до джерела даних
+     * @return бін для отримання інформації від джерела даних
+     */
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(@Qualifier("dataSourceRequestFactory") HttpComponentsClientHttpRequestFactory requestFactory) {
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Повертає бін, що відповідає за завантаження постерів.
+     * @param requestFactory фабрика запитів для завантаження постерів
+     * @return бін для завантаження постерів
+     */
+    @Bean
+    public RestTemplate posterRestTemplate(@Qualifier("posterRequestFactory") HttpComponentsClientHttpRequestFactory requestFactory) {
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Повертає бін неблокуючого клієнта для звернень до джерела даних.
+     * @return неблокуючий клієнт для звернень до джерела даних
+     * @throws IOReactorException у випадку помилки запуску потоків вводу-виводу
+     */
+    @Bean(destroyMethod = "close")
+    public NonBlockingHttpClient dataSourceHttpClient() throws IOReactorException {
+        return createNonBlockingClient("data-source");
+    }
+
+    /**
+     * Повертає бін неблокуючого клієнта для завантаження постерів.
+     * @return неблокуючий клієнт для завантаження постерів
+     * @throws IOReactorException у випадку помилки запуску потоків вводу-виводу
+     */
+    @Bean(destroyMethod = "close")
+    public NonBlockingHttpClient posterHttpClient() throws IOReactorException {
+        return createNonBlockingClient("poster");
+    }
+
+    /**
+     * Закриває невикористовувані з'єднання неблокуючих клієнтів (блокуючі
+     * клієнти роблять це самостійно).
+     */
+    @Scheduled(fixedDelayString = "${application.http.idle-eviction-interval-ms}")
+    public void evictIdleConnections() throws IOReactorException {
+        dataSourceHttpClient().evictIdleConnections();
+        posterHttpClient().evictIdleConnections();
+    }
+
+    private HttpComponentsClientHttpRequestFactory createRequestFactory(String name) {
+        String prefix = "application.http." + name + ".";
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(env.getProperty(prefix + "max-connections", int.class));
+        connectionManager.setDefaultMaxPerRoute(env.getProperty(prefix + "max-connections-per-route", int.class));
+        // з'єднання, що простоювало довше вказаного часу, перевіряється
+        // перед повторним використанням, оскільки сервер міг його закрити
+        connectionManager.setValidateAfterInactivity(env.getProperty(prefix + "validate-after-inactivity-ms", int.class));
+
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(createRequestConfig(prefix))
+                .setKeepAliveStrategy(createKeepAliveStrategy(prefix))
+                .evictExpiredConnections()
+                .evictIdleConnections(env.getProperty(prefix + "idle-timeout-ms", long.class), TimeUnit.MILLISECONDS)
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(client);
+    }
+
+    private NonBlockingHttpClient createNonBlockingClient(String name) throws IOReactorException {
+        String prefix = "application.http." + name + ".";
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(env.getProperty(prefix + "io-threads", int.class))
+                .setConnectTimeout(env.getProperty(prefix + "connect-timeout-ms", int.class))
+                .setSoTimeout(env.getProperty(prefix + "read-timeout-ms", int.class))
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+        connectionManager.setMaxTotal(env.getProperty(prefix + "max-connections", int.class));
+        connectionManager.setDefaultMaxPerRoute(env.getProperty(prefix + "max-connections-per-route", int.class));
+
+        return new NonBlockingHttpClient(HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(createRequestConfig(prefix))
+                .setKeepAliveStrategy(createKeepAliveStrategy(prefix))
+                .build(), connectionManager, env.getProperty(prefix + "idle-timeout-ms", long.class));
+    }
+
+    private RequestConfig createRequestConfig(String prefix) {
+        return RequestConfig.custom()
+                .setConnectTimeout(env.getProperty(prefix + "connect-timeout-ms", int.class))
+                .setSocketTimeout(env.getProperty(prefix + "read-timeout-ms", int.class))
+                .setConnectionRequestTimeout(env.getProperty(prefix + "connection-request-timeout-ms", int.class))
+                .build();
+    }
+
+    // тривалість утримання з'єднання, вказана сервером, не може перевищувати
+    // налаштовану
+    private ConnectionKeepAliveStrategy createKeepAliveStrategy(String prefix) {
+        long keepAlive = env.getProperty(prefix + "keep-alive-ms", long.class);
+        return (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.fluffy.configs;
+
+import com.fluffy.util.ConcurrencyLimiter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Клас, що відповідає за конфігурацію обмежень кількості запитів, що
+ * одночасно опрацьовуються кожною кінцевою точкою API.
+ * @author Сивоконь Вадим
+ */
+@Configuration
+public class LoadSheddingConfig {
+    private final Environment env;
+
+    public LoadSheddingConfig(Environment env) {
+        this.env = env;
+    }
+
+    /**
+     * Повертає бін обмежувача запитів на отримання даних про фільм (JSON, XML).
+     * @return обмежувач запитів
+     */
+    @Bean
+    public ConcurrencyLimiter filmConcurrencyLimiter() {
+        return createLimiter("film");
+    }
+
+    /**
+     * Повертає бін обмежувача запитів на отримання документа.
+     * @return обмежувач запитів
+     */
+    @Bean
+    public ConcurrencyLimiter documentConcurrencyLimiter() {
+        return createLimiter("document");
+    }
+
+    /**
+     * Повертає бін обмежувача пакетних запитів на отримання даних про фільми.
+     * @return обмежувач запитів
+     */
+    @Bean
+    public ConcurrencyLimiter batchConcurrencyLimiter() {
+        return createLimiter("batch");
+    }
+
+    private ConcurrencyLimiter createLimiter(String name) {
+        return new ConcurrencyLimiter(name, env.getProperty("application.load-shedding." + name + ".max-concurrent-requests", int.class));
+    }
+}
@@ -0,0 +1,170 @@
+package com.fluffy.configs;
+
+import com.fluffy.cache.BoundedCache;
+import com.fluffy.cache.BoundedCacheMeterBinder;
+import com.fluffy.util.CircuitBreaker;
+import com.fluffy.util.ConcurrencyLimiter;
+import com.fluffy.util.CountingRejectedExecutionHandler;
+import com.fluffy.util.RequestHedger;
+import com.fluffy.util.StageTimer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+
+/**
+ * Клас, що відповідає за конфігурацію метрик додатку. Метрики доступні
+ * через кінцеву точку /actuator/metrics: тривалість етапів опрацювання
+ * запитів (film.stage), статистика кожного кешу (cache.*), завантаженість
+ * пулу потоків (executor.*), обмежувачів запитів (limiter.*), стан
+ * запобіжників (circuit-breaker.*) та дублювання запитів до зовнішніх
+ * сервісів (hedging.*).
+ * @author Сивоконь Вадим
+ */
+@Configuration
+public class MetricsConfig {
+    private static final String EXECUTOR_NAME = "threadPoolTaskExecutor";
+
+    /**
+     * Повертає бін для вимірювання тривалості етапів опрацювання запитів.
+     * @param registry реєстр метрик
+     * @return бін для вимірювання тривалості етапів
+     */
+    @Bean
+    public StageTimer stageTimer(MeterRegistry registry) {
+        return new StageTimer(registry);
+    }
+
+    /**
+     * Повертає бін, що публікує метрики кожного обмеженого кешу. Кеші
+     * менеджера кешів реєструються автоматично під час запуску додатку.
+     * @return бін для публікації метрик кешів
+     */
+    @Bean
+    public CacheMeterBinderProvider<BoundedCache> boundedCacheMeterBinderProvider() {
+        return BoundedCacheMeterBinder::new;
+    }
+
+    /**
+     * Повертає бін, що публікує метрики пулу потоків: кількість активних
+     * потоків, глибину черги, розмір пулу, кількість виконаних та відхилених
+     * задач.
+     * @param executor пул потоків для асинхронного виконання
+     * @param rejectedExecutionHandler політика відхилення задач пулом потоків
+     * @return бін для публікації метрик пулу потоків
+     */
+    @Bean
+    public MeterBinder executorMetrics(@Qualifier("threadPoolTaskExecutor") ThreadPoolTaskExecutor executor,
+                                       CountingRejectedExecutionHandler rejectedExecutionHandler) {
+        return registry -> {
+            new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), EXECUTOR_NAME, Tags.empty()).bindTo(registry);
+            FunctionCounter.builder("executor.rejected", rejectedExecutionHandler, CountingRejectedExecutionHandler::getRejectedCount)
+                    .tag("name", EXECUTOR_NAME)
+                    .description("Кількість задач, відхилених пулом потоків")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Повертає бін, що публікує метрики кожного обмежувача кількості
+     * одночасних запитів.
+     * @param limiters обмежувачі кількості одночасних запитів
+     * @return бін для публікації метрик обмежувачів
+     */
+    @Bean
+    public MeterBinder limiterMetrics(List<ConcurrencyLimiter> limiters) {
+        return registry -> {
+            for (ConcurrencyLimiter limiter : limiters) {
+                Gauge.builder("limiter.in-flight", limiter, ConcurrencyLimiter::getInFlight)
+                        .tag("name", limiter.getName())
+                        .description("Кількість запитів, що опрацьовуються")
+                        .register(registry);
+                Gauge.builder("limiter.max-concurrency", limiter, ConcurrencyLimiter::getMaxConcurrency)
+                        .tag("name", limiter.getName())
+                        .description("Максимальна кількість одночасних запитів")
+                        .register(registry);
+                FunctionCounter.builder("limiter.rejected", limiter, ConcurrencyLimiter::getRejectedCount)
+                        .tag("name", limiter.getName())
+                        .description("Кількість відхилених запитів")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Повертає бін, що публікує метрики кожного запобіжника: стан (0 -
+     * замкнений, 1 - розімкнений, 2 - пробні звернення), частки помилок та
+     * повільних звернень, кількість розмикань та звернень, що не
+     * виконувалися.
+     * @param circuitBreakers запобіжники
+     * @return бін для публікації метрик запобіжників
+     */
+    @Bean
+    public MeterBinder circuitBreakerMetrics(List<CircuitBreaker> circuitBreakers) {
+        return registry -> {
+            for (CircuitBreaker circuitBreaker : circuitBreakers) {
+                Gauge.builder("circuit-breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                        .tag("name", circuitBreaker.getName())
+                        .description("Стан запобіжника")
+                        .register(registry);
+                Gauge.builder("circuit-breaker.failure-rate", circuitBreaker, CircuitBreaker::getFailureRate)
+                        .tag("name", circuitBreaker.getName())
+                        .description("Частка помилок серед останніх звернень")
+                        .register(registry);
+                Gauge.builder("circuit-breaker.slow-call-rate", circuitBreaker, CircuitBreaker::getSlowCallRate)
+                        .tag("name", circuitBreaker.getName())
+                        .description("Частка повільних серед останніх звернень")
+                        .register(registry);
+                FunctionCounter.builder("circuit-breaker.opened", circuitBreaker, CircuitBreaker::getOpenCount)
+                        .tag("name", circuitBreaker.getName())
+                        .description("Кількість розмикань запобіжника")
+                        .register(registry);
+                FunctionCounter.builder("circuit-breaker.not-permitted", circuitBreaker, CircuitBreaker::getNotPermittedCount)
+                        .tag("name", circuitBreaker.getName())
+                        .description("Кількість звернень, що не виконувалися")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Повертає бін, що публікує метрики дублювання запитів до кожного
+     * зовнішнього сервісу: поточну затримку другої спроби, кількість
+     * запитів, других спроб та других спроб, що завершилися першими.
+     * @param hedgers біни для дублювання запитів
+     * @return бін для публікації метрик дублювання запитів
+     */
+    @Bean
+    public MeterBinder hedgingMetrics(List<RequestHedger> hedgers) {
+        return registry -> {
+            for (RequestHedger hedger : hedgers) {
+                Gauge.builder("hedging.delay", hedger, RequestHedger::getDelayMillis)
+                        .tag("name", hedger.getName())
+                        .description("Затримка другої спроби запиту")
+                        .baseUnit("milliseconds")
+                        .register(registry);
+                FunctionCounter.builder("hedging.requests", hedger, RequestHedger::getRequestCount)
+                        .tag("name", hedger.getName())
+                        .description("Кількість запитів")
+                        .register(registry);
+                FunctionCounter.builder("hedging.hedges", hedger, RequestHedger::getHedgeCount)
+                        .tag("name", hedger.getName())
+                        .description("Кількість других спроб")
+                        .register(registry);
+                FunctionCounter.builder("hedging.wins", hedger, RequestHedger::getHedgeWinCount)
+                        .tag("name", hedger.getName())
+                        .description("Кількість запитів, результатом яких стала друга спроба")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.fluffy.configs;
+
+import com.fluffy.util.CircuitBreaker;
+import com.fluffy.util.RequestHedger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Клас, що відповідає за конфігурацію захисту від недоступності чи
+ * уповільнення зовнішніх сервісів: запобіжників та дублювання повільних
+ * запитів. Для джерела даних та сервера постерів параметри задаються у
+ * application.properties окремо, із префіксами
+ * application.resilience.data-source та application.resilience.poster.
+ * @author Сивоконь Вадим
+ */
+@Configuration
+public class ResilienceConfig implements DisposableBean {
+    private final Environment env;
+
+    /**
+     * Планувальник других спроб запитів. Планувальник лише запускає спроби,
+     * тому достатньо одного потоку. Не реєструється як бін, аби не
+     * використовуватися для задач @Scheduled.
+     */
+    private final ScheduledExecutorService hedgingScheduler;
+
+    public ResilienceConfig(Environment env) {
+        this.env = env;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("hedging-");
+        threadFactory.setDaemon(true);
+        this.hedgingScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Повертає бін запобіжника звернень до джерела даних.
+     * @return запобіжник
+     */
+    @Bean
+    public CircuitBreaker dataSourceCircuitBreaker() {
+        return createCircuitBreaker("data-source");
+    }
+
+    /**
+     * Повертає бін запобіжника завантаження постерів.
+     * @return запобіжник
+     */
+    @Bean
+    public CircuitBreaker posterCircuitBreaker() {
+        return createCircuitBreaker("poster");
+    }
+
+    /**
+     * Повертає бін для дублювання повільних запитів до джерела даних.
+     * @return бін для дублювання запитів
+     */
+    @Bean
+    public RequestHedger dataSourceRequestHedger() {
+        return createRequestHedger("data-source");
+    }
+
+    /**
+     * Повертає бін для дублювання повільних завантажень постерів.
+     * @return бін для дублювання запитів
+     */
+    @Bean
+    public RequestHedger posterRequestHedger() {
+        return createRequestHedger("poster");
+    }
+
+    @Override
+    public void destroy() {
+        hedgingScheduler.shutdownNow();
+    }
+
+    private CircuitBreaker createCircuitBreaker(String name) {
+        String prefix = "application.resilience." + name + ".circuit-breaker.";
+        return new CircuitBreaker(name,
+                env.getProperty(prefix + "window-size", int.class),
+                env.getProperty(prefix + "min-calls", int.class),
+                env.getProperty(prefix + "failure-rate-threshold", double.class),
+                env.getProperty(prefix + "slow-call-duration-ms", long.class),
+                env.getProperty(prefix + "slow-call-rate-threshold", double.class),
+                env.getProperty(prefix + "open-duration-ms", long.class),
+                env.getProperty(prefix + "half-open-calls", int.class));
+    }
+
+    private RequestHedger createRequestHedger(String name) {
+        String prefix = "application.resilience." + name + ".hedging.";
+        return new RequestHedger(name, hedgingScheduler,
+                env.getProperty(prefix + "enabled", boolean.class),
+                env.getProperty(prefix + "percentile", double.class),
+                env.getProperty(prefix + "min-delay-ms", long.class),
+                env.getProperty(prefix + "window-size", int.class),
+                env.getProperty(prefix + "min-samples", int.class));
+    }
+}
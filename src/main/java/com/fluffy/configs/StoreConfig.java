@@ -0,0 +1,39 @@
+package com.fluffy.configs;
+
+import com.fluffy.store.FilmStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Клас, що відповідає за конфігурацію сховища записів про фільми на диску
+ * та його періодичне ущільнення.
+ * @author Сивоконь Вадим
+ */
+@Configuration
+@EnableScheduling
+public class StoreConfig {
+    private final Environment env;
+
+    public StoreConfig(Environment env) {
+        this.env = env;
+    }
+
+    @Bean(destroyMethod = "close")
+    public FilmStore filmStore() throws IOException {
+        return new FilmStore(Paths.get(env.getProperty("application.store.directory")),
+                env.getProperty("application.store.segment-size-bytes", int.class),
+                env.getProperty("application.store.retention-seconds", long.class),
+                env.getProperty("application.store.compaction-min-live-ratio", double.class));
+    }
+
+    @Scheduled(initialDelayString = "${application.store.compaction-interval-ms}", fixedDelayString = "${application.store.compaction-interval-ms}")
+    public void compactFilmStore() throws IOException {
+        filmStore().compact();
+    }
+}
@@ -0,0 +1,60 @@
+package com.fluffy.controllers;
+
+import com.fluffy.cache.BoundedCache;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Клас контролера, що надає статистику використання кешів додатку.
+ * @author Сивоконь Вадим
+ */
+@RestController
+public class CacheController {
+    /**
+     * Менеджер кешів додатку.
+     */
+    private final CacheManager cacheManager;
+
+    /**
+     * Створює об'єкт (бін) контролера.
+     * @param cacheManager менеджер кешів
+     */
+    public CacheController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Повертає статистику (влучання, промахи, витіснення, розмір) для кожного
+     * кешу.
+     * @return статистика кешів
+     */
+    @GetMapping(value = "/cache/statistics")
+    public Map<String, Map<String, Object>> statistics() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof BoundedCache) {
+                BoundedCache boundedCache = (BoundedCache) cache;
+                long hits = boundedCache.getHitCount();
+                long misses = boundedCache.getMissCount();
+
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("hits", hits);
+                stats.put("misses", misses);
+                stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+                stats.put("puts", boundedCache.getPutCount());
+                stats.put("evictions", boundedCache.getEvictionCount());
+                stats.put("expirations", boundedCache.getExpirationCount());
+                stats.put("size", boundedCache.size());
+                stats.put("weightedSize", boundedCache.weightedSize());
+                result.put(name, stats);
+            }
+        }
+        return result;
+    }
+}
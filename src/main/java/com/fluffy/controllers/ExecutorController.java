@@ -0,0 +1,72 @@
+package com.fluffy.controllers;
+
+import com.fluffy.util.ConcurrencyLimiter;
+import com.fluffy.util.CountingRejectedExecutionHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Клас контролера, що надає статистику завантаженості пулу потоків та
+ * обмежувачів кількості одночасних запитів.
+ * @author Сивоконь Вадим
+ */
+@RestController
+public class ExecutorController {
+    private final ThreadPoolTaskExecutor executor;
+
+    private final CountingRejectedExecutionHandler rejectedExecutionHandler;
+
+    private final List<ConcurrencyLimiter> limiters;
+
+    /**
+     * Створює об'єкт (бін) контролера.
+     * @param executor пул потоків для асинхронного виконання
+     * @param rejectedExecutionHandler політика відхилення задач пулом потоків
+     * @param limiters обмежувачі кількості одночасних запитів
+     */
+    public ExecutorController(@Qualifier("threadPoolTaskExecutor") ThreadPoolTaskExecutor executor, CountingRejectedExecutionHandler rejectedExecutionHandler, List<ConcurrencyLimiter> limiters) {
+        this.executor = executor;
+        this.rejectedExecutionHandler = rejectedExecutionHandler;
+        this.limiters = limiters;
+    }
+
+    /**
+     * Повертає статистику пулу потоків (розмір, активні потоки, глибина
+     * черги, відхилені задачі) та кожного обмежувача запитів.
+     * @return статистика
+     */
+    @GetMapping(value = "/executor/statistics")
+    public Map<String, Object> statistics() {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        Map<String, Object> executorStats = new LinkedHashMap<>();
+        executorStats.put("poolSize", pool.getPoolSize());
+        executorStats.put("corePoolSize", pool.getCorePoolSize());
+        executorStats.put("maxPoolSize", pool.getMaximumPoolSize());
+        executorStats.put("activeThreads", pool.getActiveCount());
+        executorStats.put("queueDepth", pool.getQueue().size());
+        executorStats.put("queueRemainingCapacity", pool.getQueue().remainingCapacity());
+        executorStats.put("completedTasks", pool.getCompletedTaskCount());
+        executorStats.put("rejectedTasks", rejectedExecutionHandler.getRejectedCount());
+
+        Map<String, Object> limiterStats = new LinkedHashMap<>();
+        for (ConcurrencyLimiter limiter : limiters) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("maxConcurrency", limiter.getMaxConcurrency());
+            stats.put("inFlight", limiter.getInFlight());
+            stats.put("rejected", limiter.getRejectedCount());
+            limiterStats.put(limiter.getName(), stats);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("executor", executorStats);
+        result.put("limiters", limiterStats);
+        return result;
+    }
+}
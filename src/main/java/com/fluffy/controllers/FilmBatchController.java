@@ -0,0 +1,249 @@
+package com.fluffy.controllers;
+
+import com.fluffy.dtos.FilmBatchItem;
+import com.fluffy.dtos.GetFilmDataRequest;
+import com.fluffy.exceptions.FilmServiceException;
+import com.fluffy.exceptions.ServiceOverloadedException;
+import com.fluffy.services.FilmService;
+import com.fluffy.util.ConcurrencyLimiter;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Клас контролера, що надає API для пакетного отримання даних про фільми.
+ * @author Сивоконь Вадим
+ */
+@RestController
+public class FilmBatchController {
+    private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson");
+    private static final MediaType APPLICATION_ZIP = new MediaType("application", "zip");
+
+    private static final String FORMAT_JSON = "json";
+
+    private static final String ERROR_MESSAGE_OVERLOADED = "Сервіс перевантажений, повторіть запит пізніше";
+    private static final String ERROR_MESSAGE_UNAVAILABLE = "Не вдалося отримати дані про фільм";
+
+    private final FilmService service;
+
+    /**
+     * Обмежувач кількості одночасних пакетних запитів.
+     */
+    private final ConcurrencyLimiter batchLimiter;
+
+    private final int maxItems;
+
+    private final long timeout;
+
+    /**
+     * Створює об'єкт (бін) контролера.
+     * @param env бін для отримання змінних із application.properties
+     * @param service відповідний сервіс
+     * @param batchLimiter обмежувач пакетних запитів
+     */
+    public FilmBatchController(Environment env, FilmService service, @Qualifier("batchConcurrencyLimiter") ConcurrencyLimiter batchLimiter) {
+        this.service = service;
+        this.batchLimiter = batchLimiter;
+        this.maxItems = env.getProperty("application.batch.max-items", int.class);
+        this.timeout = env.getProperty("application.batch.timeout-ms", long.class);
+    }
+
+    /**
+     * Повертає дані про кожен фільм зі списку у форматі NDJSON: кожен рядок
+     * відповіді - JSON-об'єкт з індексом елемента запиту та даними про фільм
+     * (film) або описом помилки (error). Рядки записуються в порядку
+     * отримання даних, а не в порядку елементів запиту.
+     * @param items список фільмів (за IMDb ID або назвою та роком випуску)
+     * @return потік відповіді
+     */
+    @PostMapping(value = "/films")
+    public ResponseEntity<ResponseBodyEmitter> films(@RequestBody List<FilmBatchItem> items) throws ServiceOverloadedException {
+        List<GetFilmDataRequest> dtos = toRequests(items);
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout);
+        batchLimiter.execute(() -> service.getRequestBodies(dtos, (index, body, error) -> {
+            try {
+                emitter.send(body != null ? filmLine(index, body) : errorLine(index, error), APPLICATION_NDJSON);
+            } catch (IOException e) {
+                // клієнт закрив з'єднання - решта запитів не запускається
+                throw new UncheckedIOException(e);
+            }
+        })).whenComplete((result, e) -> {
+            if (e != null) {
+                emitter.completeWithError(e);
+            } else {
+                emitter.complete();
+            }
+        });
+
+        return ResponseEntity
+                .ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
+    /**
+     * Повертає архів (ZIP) із документами для кожного фільму зі списку.
+     * Документи створюються одночасно (у межах встановленої кількості) та
+     * записуються в архів у порядку створення, тому клієнт отримує архів
+     * поступово, а в пам'яті одночасно знаходиться лише обмежена кількість
+     * документів. Для запиту, документ для якого створити не вдалося, архів
+     * містить текстовий файл з описом помилки.
+     * @param items список фільмів (за IMDb ID або назвою та роком випуску)
+     * @return потік відповіді
+     */
+    @PostMapping(value = "/films/documents")
+    public ResponseEntity<ResponseBodyEmitter> documents(@RequestBody List<FilmBatchItem> items) throws ServiceOverloadedException {
+        List<GetFilmDataRequest> dtos = toRequests(items);
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(buffer);
+        batchLimiter.execute(() -> service.getDocuments(dtos, (index, document, error) -> {
+            String name = getEntryName(index, items.get(index));
+            try {
+                if (document != null) {
+                    addEntry(zip, buffer, emitter, name + ".docx", document);
+                } else {
+                    addEntry(zip, buffer, emitter, name + ".error.txt", getErrorMessage(error).getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                // клієнт закрив з'єднання - решта документів не створюється
+                throw new UncheckedIOException(e);
+            }
+        })).whenComplete((result, e) -> {
+            if (e != null) {
+                emitter.completeWithError(e);
+                return;
+            }
+            try {
+                synchronized (zip) {
+                    zip.finish();
+                    emitter.send(buffer.toByteArray(), APPLICATION_ZIP);
+                }
+                emitter.complete();
+            } catch (IOException ioException) {
+                emitter.completeWithError(ioException);
+            }
+        });
+
+        return ResponseEntity
+                .ok()
+                .contentType(APPLICATION_ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=films.zip")
+                .body(emitter);
+    }
+
+    // документи вже стиснуті, тому зберігаються в архіві без повторного
+    // стиснення; кожен доданий запис одразу надсилається клієнту
+    private static void addEntry(ZipOutputStream zip, ByteArrayOutputStream buffer, ResponseBodyEmitter emitter,
+                                 String name, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        synchronized (zip) {
+            zip.putNextEntry(entry);
+            zip.write(content);
+            zip.closeEntry();
+            emitter.send(buffer.toByteArray(), APPLICATION_ZIP);
+            buffer.reset();
+        }
+    }
+
+    private static String getEntryName(int index, FilmBatchItem item) {
+        String name;
+        if (item.getId() != null) {
+            name = item.getId();
+        } else if (item.getTitle() != null) {
+            name = item.getTitle() + (item.getYear() != null ? " (" + item.getYear() + ")" : "");
+        } else {
+            name = "film";
+        }
+        // індекс робить назви унікальними, а з назви видаляються символи,
+        // неприпустимі в іменах файлів
+        return String.format("%04d-%s", index + 1, name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim());
+    }
+
+    private List<GetFilmDataRequest> toRequests(List<FilmBatchItem> items) {
+        if (items.size() > maxItems) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Кількість фільмів у запиті не може перевищувати " + maxItems);
+        }
+        List<GetFilmDataRequest> dtos = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); ++i) {
+            FilmBatchItem item = items.get(i);
+            if (item == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Елемент запиту з індексом " + i + " не може бути порожнім");
+            }
+            dtos.add(item.toRequest(FORMAT_JSON));
+        }
+        return dtos;
+    }
+
+    /**
+     * Опрацьовує відхилення некоректного пакетного запиту (наприклад,
+     * порожнього елемента чи завеликої кількості фільмів). Опис причини
+     * повертається клієнту.
+     * @param e виняток
+     * @return відповідь
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, Object>> rejected(ResponseStatusException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", e.getStatus().value());
+        body.put("error", e.getStatus().getReasonPhrase());
+        body.put("message", e.getReason());
+        return ResponseEntity.status(e.getStatus()).body(body);
+    }
+
+    private static byte[] filmLine(int index, byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + 32);
+        byte[] prefix = ("{\"index\":" + index + ",\"film\":").getBytes(StandardCharsets.UTF_8);
+        out.write(prefix, 0, prefix.length);
+        out.write(body, 0, body.length);
+        out.write('}');
+        out.write('\n');
+        return out.toByteArray();
+    }
+
+    private static byte[] errorLine(int index, Throwable error) {
+        return ("{\"index\":" + index + ",\"error\":" + JSONObject.quote(getErrorMessage(error)) + "}\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getErrorMessage(Throwable error) {
+        if (error instanceof FilmServiceException) {
+            Throwable cause = error.getCause();
+            return cause != null ? error.getMessage() + ": " + cause.getMessage() : error.getMessage();
+        }
+        if (error instanceof RejectedExecutionException) {
+            return ERROR_MESSAGE_OVERLOADED;
+        }
+        return ERROR_MESSAGE_UNAVAILABLE;
+    }
+}
@@ -1,29 +1,29 @@
 package com.fluffy.controllers;
 
+import com.fluffy.cache.EncodedBody;
 import com.fluffy.dtos.GetFilmDataRequest;
+import com.fluffy.dtos.SearchFilmsRequest;
+import com.fluffy.dtos.VersionDTO;
 import com.fluffy.exceptions.FilmServiceException;
+import com.fluffy.exceptions.ServiceOverloadedException;
 import com.fluffy.services.FilmService;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.xmlbeans.XmlException;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import com.fluffy.util.ConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
-
-import javax.servlet.http.HttpServletResponse;
-import java.io.DataOutputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.URISyntaxException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Клас контролера, який надає API для взаємодії між користувачем та веб-
@@ -33,39 +33,44 @@ import java.util.concurrent.ExecutionException;
  */
 @RestController
 public class FilmController {
+    private static final String GZIP = "gzip";
+
+    private static final MediaType APPLICATION_XML_UTF8 = new MediaType(MediaType.APPLICATION_XML, StandardCharsets.UTF_8);
+
     /**
      * Відповідний сервіс, що займається виконанням бізнес-логіки.
      */
     private final FilmService service;
 
-    private final int CACHE_RESPONSE_BODIES_MAX_SIZE;
-    private final int CACHE_DOCUMENTS_MAX_SIZE;
-
-    private final Environment env;
-
-    private int cacheResponseBodiesCounter = 0;
-    private int cacheDocumentsCounter = 0;
+    /**
+     * Обмежувач кількості одночасних запитів на отримання даних про фільм.
+     */
+    private final ConcurrencyLimiter filmLimiter;
 
-    @CacheEvict(value = "responseBodies", allEntries = true)
-    public void evictCachedResponseBodies() {
-        cacheResponseBodiesCounter = 0;
-    }
+    /**
+     * Обмежувач кількості одночасних запитів на отримання документа.
+     */
+    private final ConcurrencyLimiter documentLimiter;
 
-    @CacheEvict(value = "documents", allEntries = true)
-    public void evictCachedDocuments() {
-        cacheDocumentsCounter = 0;
-    }
+    /**
+     * Значення заголовка Cache-Control відповідей з даними про фільм.
+     */
+    private final CacheControl cacheControl;
 
     /**
      * Створює об'єкт (бін) контролера.
+     * @param env середовище (для отримання параметрів конфігурації)
      * @param service відповідний сервіс
+     * @param filmLimiter обмежувач запитів на отримання даних про фільм
+     * @param documentLimiter обмежувач запитів на отримання документа
      */
-    public FilmController(FilmService service, Environment env) {
+    public FilmController(Environment env, FilmService service, @Qualifier("filmConcurrencyLimiter") ConcurrencyLimiter filmLimiter,
+                          @Qualifier("documentConcurrencyLimiter") ConcurrencyLimiter documentLimiter) {
         this.service = service;
-        this.env = env;
-
-        CACHE_RESPONSE_BODIES_MAX_SIZE = env.getProperty("application.cache.cache-response-bodies-max-size", int.class);
-        CACHE_DOCUMENTS_MAX_SIZE = env.getProperty("application.cache.cache-documents-max-size", int.class);
+        this.filmLimiter = filmLimiter;
+        this.documentLimiter = documentLimiter;
+        this.cacheControl = CacheControl.maxAge(env.getProperty("application.http-cache.max-age-seconds", long.class), TimeUnit.SECONDS)
+                .cachePublic();
     }
 
     /**
@@ -80,34 +85,83 @@ public class FilmController {
      * @param plot тип співпадіння
      * @param id IMDb ID
      * @param format формат відповіді
-     * @return відповідь у необхідному форматі (JSON)
+     * @param requestHeaders заголовки запиту (для умовних запитів)
+     * @return відповідь у необхідному форматі (JSON), що завершується після
+     *         отримання даних про фільм (потік сервера на неї не очікує), або
+     *         304 Not Modified, якщо представлення клієнта актуальне
      */
     @GetMapping(value = "/film")
-    @Cacheable("responseBodies")
-    public ResponseEntity<?> filmData(@RequestParam(name = "${application.api.param.title}", required = false) String title,
+    public CompletableFuture<ResponseEntity<byte[]>> filmData(@RequestParam(name = "${application.api.param.title}", required = false) String title,
                                   @RequestParam(name = "${application.api.param.year}", required = false) String year,
                                   @RequestParam(name = "${application.api.param.plot}", required = false) String plot,
                                   @RequestParam(name = "${application.api.param.id}", required = false) String id,
-                                  @RequestParam(name = "${application.api.param.format}", required = false) String format) throws FilmServiceException, ExecutionException, InterruptedException {
-        if (cacheResponseBodiesCounter >= CACHE_RESPONSE_BODIES_MAX_SIZE) {
-            evictCachedResponseBodies();
-        }
+                                  @RequestParam(name = "${application.api.param.format}", required = false) String format,
+                                  @RequestHeader HttpHeaders requestHeaders) throws FilmServiceException, ServiceOverloadedException {
+        GetFilmDataRequest request = new GetFilmDataRequest(title, year, plot, id, format);
+        boolean gzip = acceptsGzip(requestHeaders);
+        return filmLimiter.execute(() -> service.getVersionedFilm(request).thenApply(versionedFilm -> {
+            VersionDTO version = versionedFilm.getVersion();
+            // стиснутий варіант - окреме представлення з власним ETag
+            VersionDTO variant = gzip ? new VersionDTO(withSuffix(version.getETag(), GZIP), version.getLastModified()) : version;
+            if (isNotModified(requestHeaders, variant)) {
+                return notModified(variant);
+            }
+            // тіло формується з того самого запису, що й валідатори; воно вже
+            // закодоване в UTF-8 (та за потреби стиснуте) і записується без
+            // перетворень
+            EncodedBody encodedBody = service.getEncodedBody(versionedFilm, format);
+            ResponseEntity.BodyBuilder builder = ResponseEntity
+                    .ok()
+                    .eTag(variant.getETag())
+                    .lastModified(variant.getLastModified())
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .contentType(format.equals("json") ? MediaType.APPLICATION_JSON : APPLICATION_XML_UTF8);
+            if (gzip && encodedBody.getGzipBody() != null) {
+                return builder
+                        .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                        .body(encodedBody.getGzipBody());
+            }
+            return builder.body(encodedBody.getBody());
+        }));
+    }
 
-        CompletableFuture<String> futureBody = service.getRequestBody(new GetFilmDataRequest(title, year, plot, id, format));
-        CompletableFuture.allOf(futureBody).join();
+    /**
+     * Повертає сторінку результатів пошуку фільмів за назвою (JSON).
+     * Результати містять IMDb ID фільмів, за якими можна отримати повні дані
+     * про фільм.
+     * @param title пошуковий запит
+     * @param year рік випуску
+     * @param type тип результатів (movie, series, episode)
+     * @param page номер сторінки (починаючи з 1)
+     * @return сторінка результатів пошуку
+     */
+    @GetMapping(value = "/film/search")
+    public CompletableFuture<ResponseEntity<byte[]>> search(@RequestParam(name = "${application.api.param.title}", required = false) String title,
+                                                            @RequestParam(name = "${application.api.param.year}", required = false) String year,
+                                                            @RequestParam(name = "${application.api.param.type}", required = false) String type,
+                                                            @RequestParam(name = "${application.api.param.page}", required = false) String page) throws FilmServiceException, ServiceOverloadedException {
+        return filmLimiter.execute(() -> service.search(new SearchFilmsRequest(title, year, type, page)))
+                .thenApply(body -> ResponseEntity
+                        .ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(body));
+    }
 
-        ++cacheResponseBodiesCounter;
-        if (format.equals("json")) {
-            return ResponseEntity
-                    .ok()
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(futureBody.get());
-        } else {
-            return ResponseEntity
-                    .ok()
-                    .contentType(MediaType.APPLICATION_XML)
-                    .body(futureBody.get());
-        }
+    /**
+     * Повертає підказки для вказаного початку назви фільму (JSON) - фільми,
+     * дані про які вже отримував додаток, разом із їх IMDb ID.
+     * @param query початок назви фільму або слова в ній
+     * @param limit максимальна кількість підказок
+     * @return підказки
+     */
+    @GetMapping(value = "/film/suggest")
+    public ResponseEntity<byte[]> suggest(@RequestParam(name = "${application.api.param.query}", required = false) String query,
+                                          @RequestParam(name = "${application.api.param.limit}", required = false) String limit) throws FilmServiceException {
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.suggest(query, limit));
     }
 
     /**
@@ -122,43 +176,125 @@ public class FilmController {
      * @param plot тип співпадіння
      * @param id IMDb ID
      * @param format формат відповіді
-     * @return відповідь у необхідному форматі (docx)
+     * @param requestHeaders заголовки запиту (для умовних запитів)
+     * @return відповідь у необхідному форматі (docx), що завершується після
+     *         отримання документа з кешу або його створення (потік сервера на
+     *         неї не очікує), або 304 Not Modified без створення документа,
+     *         якщо документ клієнта актуальний
      */
     @GetMapping(value = "/film", params = "format=docx")
-    @Cacheable("documents")
-    public ResponseEntity<StreamingResponseBody> filmDocument(@RequestParam(name = "${application.api.param.title}", required = false) String title,
+    public CompletableFuture<ResponseEntity<byte[]>> filmDocument(@RequestParam(name = "${application.api.param.title}", required = false) String title,
                                                         @RequestParam(name = "${application.api.param.year}", required = false) String year,
                                                         @RequestParam(name = "${application.api.param.plot}", required = false) String plot,
                                                         @RequestParam(name = "${application.api.param.id}", required = false) String id,
-                                                        @RequestParam(name = "${application.api.param.format}", required = false) String format, HttpServletResponse response) throws FilmServiceException, FileNotFoundException, URISyntaxException, InterruptedException {
-        if (cacheDocumentsCounter >= CACHE_DOCUMENTS_MAX_SIZE) {
-            evictCachedDocuments();
-        }
+                                                        @RequestParam(name = "${application.api.param.format}", required = false) String format,
+                                                        @RequestHeader HttpHeaders requestHeaders) throws FilmServiceException, ServiceOverloadedException {
+        GetFilmDataRequest request = new GetFilmDataRequest(title, year, plot, id, format);
+        return documentLimiter.execute(() -> service.getVersionedFilm(request).thenCompose(versionedFilm -> {
+            VersionDTO version = versionedFilm.getVersion();
+            if (isNotModified(requestHeaders, version)) {
+                return CompletableFuture.completedFuture(notModified(version));
+            }
 
-        StreamingResponseBody stream = out -> {
-            try (OutputStream writer = new DataOutputStream(response.getOutputStream())) {
-                CompletableFuture<XWPFDocument> futureDoc = service.getDocument(new GetFilmDataRequest(title, year, plot, id, "json"));
+            // документ створюється з того самого запису, що й валідатори;
+            // вміст документа вже готовий, тому відповідь має відому довжину,
+            // а потік, що записує відповідь, зайнятий лише власне записом
+            return service.getDocumentBytes(versionedFilm).thenApply(content -> ResponseEntity
+                    .ok()
+                    .eTag(version.getETag())
+                    .lastModified(version.getLastModified())
+                    .cacheControl(cacheControl)
+                    .contentType(new MediaType("application", "vnd.openxmlformats-officedocument.wordprocessingml.document"))
+                    .contentLength(content.length)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=sample.docx")
+                    .body(content));
+        }));
+    }
+
+    /**
+     * Перевіряє, чи актуальне представлення, що вже має клієнт (RFC 7232):
+     * заголовок If-None-Match порівнюється з ETag, а за його відсутності
+     * If-Modified-Since - з часом останньої зміни.
+     * @param requestHeaders заголовки запиту
+     * @param version валідатори поточного представлення
+     * @return true, якщо представлення клієнта актуальне
+     */
+    private static boolean isNotModified(HttpHeaders requestHeaders, VersionDTO version) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            for (String eTag : ifNoneMatch) {
+                // для GET використовується слабке порівняння
+                if (eTag.equals("*") || (eTag.startsWith("W/") ? eTag.substring(2) : eTag).equals(version.getETag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
 
-                // для очікування завершення виконання декількох потоків (у цьому випадку - одного)
-                CompletableFuture.allOf(futureDoc).join();
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = requestHeaders.getIfModifiedSince();
+        } catch (IllegalArgumentException e) {
+            // некоректна дата ігнорується
+            return false;
+        }
+        // дата в заголовку має точність до секунди
+        return ifModifiedSince >= 0 && version.getLastModified() / 1000 * 1000 <= ifModifiedSince;
+    }
 
-                // документ згенерований і може бути отриманий
-                XWPFDocument doc = futureDoc.get();
+    /**
+     * Перевіряє, чи приймає клієнт відповідь, стиснуту gzip (заголовок
+     * Accept-Encoding, з урахуванням вагових коефіцієнтів q).
+     * @param requestHeaders заголовки запиту
+     * @return true, якщо клієнт приймає gzip
+     */
+    private static boolean acceptsGzip(HttpHeaders requestHeaders) {
+        List<String> values = requestHeaders.get(HttpHeaders.ACCEPT_ENCODING);
+        if (values == null) {
+            return false;
+        }
+        // явно вказаний gzip має перевагу над "*"
+        Boolean wildcard = null;
+        for (String value : values) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                if (name.equalsIgnoreCase(GZIP) || name.equalsIgnoreCase("x-gzip")) {
+                    return isAcceptable(parts);
+                } else if (name.equals("*")) {
+                    wildcard = isAcceptable(parts);
+                }
+            }
+        }
+        return wildcard != null && wildcard;
+    }
 
-                doc.write(writer);
-            } catch (IOException | URISyntaxException | FilmServiceException | XmlException e) {
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            } catch (ExecutionException e) {
-                e.printStackTrace();
+    // кодування неприйнятне, якщо його ваговий коефіцієнт дорівнює 0
+    private static boolean isAcceptable(String[] parts) {
+        for (int i = 1; i < parts.length; ++i) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
             }
-        };
+        }
+        return true;
+    }
 
-        ++cacheDocumentsCounter;
+    // "тег" -> "тег-суфікс"
+    private static String withSuffix(String eTag, String suffix) {
+        return eTag.substring(0, eTag.length() - 1) + "-" + suffix + "\"";
+    }
+
+    private <T> ResponseEntity<T> notModified(VersionDTO version) {
         return ResponseEntity
-                .ok()
-                .contentType(new MediaType("application", "vnd.openxmlformats-officedocument.wordprocessingml.document"))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=sample.docx")
-                .body(stream);
+                .status(HttpStatus.NOT_MODIFIED)
+                .eTag(version.getETag())
+                .lastModified(version.getLastModified())
+                .cacheControl(cacheControl)
+                .build();
     }
 }
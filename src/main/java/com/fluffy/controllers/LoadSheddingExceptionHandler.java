@@ -0,0 +1,84 @@
+package com.fluffy.controllers;
+
+import com.fluffy.exceptions.ExternalServiceUnavailableException;
+import com.fluffy.exceptions.ServiceOverloadedException;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Клас, що перетворює відмови в опрацюванні запитів через перевантаження
+ * (або недоступність зовнішнього сервісу) на відповіді з відповідним
+ * статусом та заголовком Retry-After, аби клієнт повторив запит пізніше.
+ * @author Сивоконь Вадим
+ */
+@RestControllerAdvice
+public class LoadSheddingExceptionHandler {
+    private final HttpStatus limitExceededStatus;
+
+    private final HttpStatus executorRejectedStatus;
+
+    private final HttpStatus circuitOpenStatus;
+
+    private final String retryAfter;
+
+    /**
+     * Створює об'єкт (бін) обробника.
+     * @param env бін для отримання змінних із application.properties
+     */
+    public LoadSheddingExceptionHandler(Environment env) {
+        limitExceededStatus = HttpStatus.valueOf(env.getProperty("application.load-shedding.limit-exceeded-status", int.class));
+        executorRejectedStatus = HttpStatus.valueOf(env.getProperty("application.load-shedding.executor-rejected-status", int.class));
+        circuitOpenStatus = HttpStatus.valueOf(env.getProperty("application.resilience.circuit-open-status", int.class));
+        retryAfter = env.getProperty("application.load-shedding.retry-after-seconds");
+    }
+
+    /**
+     * Опрацьовує перевищення кількості одночасних запитів до кінцевої точки.
+     * @param e виняток
+     * @return відповідь
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> limitExceeded(ServiceOverloadedException e) {
+        return createResponse(limitExceededStatus, e.getMessage());
+    }
+
+    /**
+     * Опрацьовує відхилення задачі пулом потоків через заповнення черги.
+     * @param e виняток
+     * @return відповідь
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> executorRejected(RejectedExecutionException e) {
+        return createResponse(executorRejectedStatus, "Сервіс перевантажений, повторіть запит пізніше");
+    }
+
+    /**
+     * Опрацьовує відмову у зверненні до зовнішнього сервісу, що вважається
+     * недоступним (запобіжник розімкнений).
+     * @param e виняток
+     * @return відповідь
+     */
+    @ExceptionHandler(ExternalServiceUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> externalServiceUnavailable(ExternalServiceUnavailableException e) {
+        return createResponse(circuitOpenStatus, e.getMessage());
+    }
+
+    private ResponseEntity<Map<String, Object>> createResponse(HttpStatus status, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", message);
+        return ResponseEntity
+                .status(status)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                .body(body);
+    }
+}
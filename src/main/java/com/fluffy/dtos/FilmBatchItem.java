@@ -0,0 +1,70 @@
+package com.fluffy.dtos;
+
+/**
+ * Клас елемента пакетного запиту на отримання даних про фільми. Фільм
+ * ідентифікується так само, як і в запиті на отримання даних про один
+ * фільм: або за IMDb ID, або за назвою (та, за потреби, роком випуску).
+ * @author Сивоконь Вадим
+ */
+public class FilmBatchItem {
+    /**
+     * Назва фільму.
+     */
+    private String title;
+
+    /**
+     * Рік випуску. Рядок, щоб мати можливість перевірити на null.
+     */
+    private String year;
+
+    /**
+     * Тип співпадіння.
+     */
+    private String plot;
+
+    /**
+     * IMDb ID фільму.
+     */
+    private String id;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public void setYear(String year) {
+        this.year = year;
+    }
+
+    public String getPlot() {
+        return plot;
+    }
+
+    public void setPlot(String plot) {
+        this.plot = plot;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Повертає запит на отримання даних про фільм, що відповідає елементу.
+     * @param format формат відповіді
+     * @return запит на отримання даних про фільм
+     */
+    public GetFilmDataRequest toRequest(String format) {
+        return new GetFilmDataRequest(title, year, plot, id, format);
+    }
+}
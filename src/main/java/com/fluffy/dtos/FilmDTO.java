@@ -25,6 +25,8 @@ public class FilmDTO {
 
     private String production;
     private String boxOffice;
+    private String dvd;
+    private String website;
 
     private String metascore;
     private String imdbRating;
@@ -63,6 +65,9 @@ public class FilmDTO {
     // ???
     private String poster;
 
+    private String response;
+    private String error;
+
     public String getType() {
         return type;
     }
@@ -199,6 +204,22 @@ public class FilmDTO {
         this.boxOffice = boxOffice;
     }
 
+    public String getDvd() {
+        return dvd;
+    }
+
+    public void setDvd(String dvd) {
+        this.dvd = dvd;
+    }
+
+    public String getWebsite() {
+        return website;
+    }
+
+    public void setWebsite(String website) {
+        this.website = website;
+    }
+
     public String getMetascore() {
         return metascore;
     }
@@ -240,4 +261,20 @@ public class FilmDTO {
     public void setPoster(String poster) {
         this.poster = poster;
     }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
 }
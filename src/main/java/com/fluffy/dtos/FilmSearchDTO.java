@@ -0,0 +1,46 @@
+package com.fluffy.dtos;
+
+import java.util.List;
+
+public class FilmSearchDTO {
+    private List<FilmDTO> search;
+    private String totalResults;
+    private String response;
+    private String error;
+
+    public FilmSearchDTO() {
+
+    }
+
+    public List<FilmDTO> getSearch() {
+        return search;
+    }
+
+    public void setSearch(List<FilmDTO> search) {
+        this.search = search;
+    }
+
+    public String getTotalResults() {
+        return totalResults;
+    }
+
+    public void setTotalResults(String totalResults) {
+        this.totalResults = totalResults;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,77 @@
+package com.fluffy.dtos;
+
+/**
+ * Клас об'єкта передачі даних пошукового запиту. Забезпечує інформаційний
+ * обмін між контролерами та сервісами.
+ * @author Сивоконь Вадим
+ */
+public class SearchFilmsRequest {
+    /**
+     * Пошуковий запит (назва фільму або її частина).
+     */
+    private String title;
+
+    /**
+     * Рік випуску. Рядок, щоб мати можливість перевірити на null.
+     */
+    private String year;
+
+    /**
+     * Тип результатів: фільм, серіал, епізод.
+     */
+    private String type;
+
+    /**
+     * Номер сторінки результатів. Рядок, щоб мати можливість перевірити на
+     * null.
+     */
+    private String page;
+
+    /**
+     * Створює об'єкт передачі даних пошукового запиту.
+     * @param title пошуковий запит
+     * @param year рік випуску фільму
+     * @param type тип результатів
+     * @param page номер сторінки результатів
+     */
+    public SearchFilmsRequest(String title, String year, String type, String page) {
+        this.title = title;
+        this.year = year;
+        this.type = type;
+        this.page = page;
+    }
+
+    /**
+     * Повертає пошуковий запит.
+     * @return пошуковий запит
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Повертає рік випуску фільму у вигляді рядка - для можливості здійснення
+     * подальшої валідації.
+     * @return рік випуску
+     */
+    public String getYear() {
+        return year;
+    }
+
+    /**
+     * Повертає тип результатів.
+     * @return тип результатів
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Повертає номер сторінки результатів у вигляді рядка - для можливості
+     * здійснення подальшої валідації.
+     * @return номер сторінки
+     */
+    public String getPage() {
+        return page;
+    }
+}
@@ -0,0 +1,24 @@
+package com.fluffy.dtos;
+
+/**
+ * Валідатори представлення ресурсу для умовних запитів: сильний ETag (в
+ * лапках, як у заголовку) та час останньої зміни (у мс від початку епохи).
+ * @author Сивоконь Вадим
+ */
+public class VersionDTO {
+    private final String eTag;
+    private final long lastModified;
+
+    public VersionDTO(String eTag, long lastModified) {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
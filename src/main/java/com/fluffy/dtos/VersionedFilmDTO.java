@@ -0,0 +1,40 @@
+package com.fluffy.dtos;
+
+import com.fluffy.cache.FilmKey;
+
+/**
+ * Дані про фільм разом із валідаторами їх представлення, отримані з одного
+ * запису про фільм. Тіло відповіді формується з тих самих даних, за якими
+ * визначені валідатори, тому ETag та Last-Modified завжди відповідають
+ * тілу, навіть якщо запис оновився між перевіркою умовного запиту та
+ * формуванням відповіді.
+ * @author Сивоконь Вадим
+ */
+public class VersionedFilmDTO {
+    private final VersionDTO version;
+
+    /**
+     * Ключ запиту (використовується як ключ кешу тіл відповідей).
+     */
+    private final FilmKey key;
+
+    private final FilmDTO film;
+
+    public VersionedFilmDTO(VersionDTO version, FilmKey key, FilmDTO film) {
+        this.version = version;
+        this.key = key;
+        this.film = film;
+    }
+
+    public VersionDTO getVersion() {
+        return version;
+    }
+
+    public FilmKey getKey() {
+        return key;
+    }
+
+    public FilmDTO getFilm() {
+        return film;
+    }
+}
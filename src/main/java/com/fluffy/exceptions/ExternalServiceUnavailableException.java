@@ -0,0 +1,34 @@
+package com.fluffy.exceptions;
+
+/**
+ * Клас винятку, що виникає у випадку, коли звернення до зовнішнього сервісу
+ * (джерела даних, сервера постерів) не виконується, оскільки сервіс
+ * вважається недоступним (запобіжник розімкнений).
+ * @author Сивоконь Вадим
+ */
+public class ExternalServiceUnavailableException extends Exception {
+    /**
+     * Створює об'єкт винятку.
+     */
+    public ExternalServiceUnavailableException() {
+        super();
+    }
+
+    /**
+     * Створює об'єкт винятку із можливістю збереження текстового повідомлення
+     * @param message текстове повідомлення
+     */
+    public ExternalServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    /**
+     * Створює об'єкт винятку із можливістю збереження текстового повідомлення та
+     * більш конкретного виключення (його обгортання).
+     * @param message текстове повідомлення
+     * @param cause більш точна причина виключення
+     */
+    public ExternalServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
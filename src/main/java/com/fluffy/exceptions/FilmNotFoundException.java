@@ -0,0 +1,33 @@
+package com.fluffy.exceptions;
+
+/**
+ * Клас винятку, що виникає в результаті відсутності у джерелі даних фільму,
+ * що відповідає параметрам запиту.
+ * @author Сивоконь Вадим
+ */
+public class FilmNotFoundException extends Exception {
+    /**
+     * Створює об'єкт винятку.
+     */
+    public FilmNotFoundException() {
+        super();
+    }
+
+    /**
+     * Створює об'єкт винятку із можливістю збереження текстового повідомлення
+     * @param message текстове повідомлення
+     */
+    public FilmNotFoundException(String message) {
+        super(message);
+    }
+
+    /**
+     * Створює об'єкт винятку із можливістю збереження текстового повідомлення та
+     * більш конкретного виключення (його обгортання).
+     * @param message текстове повідомлення
+     * @param cause більш точна причина виключення
+     */
+    public FilmNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
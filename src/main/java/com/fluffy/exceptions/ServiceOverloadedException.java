@@ -0,0 +1,33 @@
+package com.fluffy.exceptions;
+
+/**
+ * Клас винятку, що виникає у випадку, коли кількість запитів, що одночасно
+ * опрацьовуються, досягла встановленої межі, і новий запит відхиляється.
+ * @author Сивоконь Вадим
+ */
+public class ServiceOverloadedException extends Exception {
+    /**
+     * Створює об'єкт винятку.
+     */
+    public ServiceOverloadedException() {
+        super();
+    }
+
+    /**
+     * Створює об'єкт винятку із можливістю збереження текстового повідомлення
+     * @param message текстове повідомлення
+     */
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Створює об'єкт винятку із можливістю збереження текстового повідомлення та
+     * більш конкретного виключення (його обгортання).
+     * @param message текстове повідомлення
+     * @param cause більш точна причина виключення
+     */
+    public ServiceOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,21 +1,47 @@
 package com.fluffy.services;
 
+import com.fluffy.cache.EncodedBody;
+import com.fluffy.cache.FilmKey;
+import com.fluffy.cache.FilmKeyResolver;
+import com.fluffy.cache.FilmRecord;
+import com.fluffy.cache.SearchKey;
+import com.fluffy.cache.SearchPage;
+import com.fluffy.cache.TitleIndex;
 import com.fluffy.dtos.FilmDTO;
+import com.fluffy.dtos.FilmSearchDTO;
 import com.fluffy.dtos.GetFilmDataRequest;
 import com.fluffy.dtos.ImageDTO;
+import com.fluffy.dtos.SearchFilmsRequest;
+import com.fluffy.dtos.VersionDTO;
+import com.fluffy.dtos.VersionedFilmDTO;
 import com.fluffy.exceptions.*;
+import com.fluffy.store.FilmStore;
+import com.fluffy.util.BoundedFanOut;
+import com.fluffy.util.CircuitBreaker;
+import com.fluffy.util.DocumentTemplate;
+import com.fluffy.util.FilmDocument;
+import com.fluffy.util.FilmParser;
+import com.fluffy.util.FilmSerializer;
+import com.fluffy.util.NonBlockingHttpClient;
+import com.fluffy.util.RequestHedger;
 import com.fluffy.util.RequestParamMapper;
+import com.fluffy.util.SingleFlight;
+import com.fluffy.util.StageTimer;
+import com.fluffy.util.StreamingDocumentTemplate;
 import com.fluffy.util.URLBuilder;
 import com.fluffy.util.XWPFDocumentManipulator;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.xmlbeans.XmlException;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import  org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
@@ -23,9 +49,14 @@ import  org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Клас сервісу. Інкапсулює в собі бізнес-логіку, необхідну до виконання над
@@ -34,6 +65,8 @@ import java.util.concurrent.CompletableFuture;
  */
 @Service
 public class FilmService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilmService.class);
+
     private final String DATA_SOURCE_PROTOCOL;
     private final String DATA_SOURCE_HOST;
     private final String DATA_SOURCE_API_KEY;
@@ -43,6 +76,9 @@ public class FilmService {
     private final String DATA_SOURCE_QUERY_KEY_FORMAT;
     private final String DATA_SOURCE_QUERY_KEY_ID;
     private final String DATA_SOURCE_QUERY_KEY_API_KEY;
+    private final String DATA_SOURCE_QUERY_KEY_SEARCH;
+    private final String DATA_SOURCE_QUERY_KEY_TYPE;
+    private final String DATA_SOURCE_QUERY_KEY_PAGE;
 
     private final String APPLICATION_PROTOCOL;
     private final String APPLICATION_HOST;
@@ -51,14 +87,19 @@ public class FilmService {
     private final String APPLICATION_QUERY_KEY_PLOT;
     private final String APPLICATION_QUERY_KEY_FORMAT;
     private final String APPLICATION_QUERY_KEY_ID;
-
-    private final String TEMPLATE_FILENAME = "Template.docx";
+    private final String APPLICATION_QUERY_KEY_TYPE;
 
     /**
      * Загальний опис проблеми, пов'язаної із некоректними вхідними даними.
      */
     private final String EXCEPTION_MESSAGE_BAD_INPUT = "Некоректні вхідні дані";
 
+    /**
+     * Загальний опис проблеми, пов'язаної із відсутністю фільму в джерелі
+     * даних.
+     */
+    private final String EXCEPTION_MESSAGE_NOT_FOUND = "Фільм не знайдено";
+
     /**
      * Бін, що використовується для отримання змінних оточення, визначених у
      * application.properties.
@@ -74,20 +115,239 @@ public class FilmService {
 
     private final RestTemplate restTemplate;
 
+    /**
+     * Бін для завантаження постерів, що використовує окремий пул з'єднань.
+     */
+    private final RestTemplate posterRestTemplate;
+
+    /**
+     * Неблокуючий клієнт для звернень до джерела даних.
+     */
+    private final NonBlockingHttpClient dataSourceHttpClient;
+
+    /**
+     * Неблокуючий клієнт для завантаження постерів.
+     */
+    private final NonBlockingHttpClient posterHttpClient;
+
+    /**
+     * Запобіжник звернень до джерела даних.
+     */
+    private final CircuitBreaker dataSourceCircuitBreaker;
+
+    /**
+     * Запобіжник завантаження постерів.
+     */
+    private final CircuitBreaker posterCircuitBreaker;
+
+    /**
+     * Бін для дублювання повільних запитів до джерела даних.
+     */
+    private final RequestHedger dataSourceRequestHedger;
+
+    /**
+     * Бін для дублювання повільних завантажень постерів.
+     */
+    private final RequestHedger posterRequestHedger;
+
+    /**
+     * Чи використовуються неблокуючі клієнти для звернень до зовнішніх
+     * сервісів (інакше - блокуючі, у пулі потоків).
+     */
+    private final boolean nonBlocking;
+
+    /**
+     * Пул потоків, у якому виконуються звернення до джерела даних та
+     * генерація документів.
+     */
+    private final Executor executor;
+
+    /**
+     * Кеш даних про фільми (разом із хешем вмісту) за канонічними ключами.
+     */
+    private final Cache films;
+
+    /**
+     * Кеш тіл відповідей (JSON, XML), закодованих у UTF-8, разом із їх
+     * стиснутими варіантами за ключем фільму та форматом.
+     */
+    private final Cache bodies;
+
+    /**
+     * Кеш сторінок результатів пошуку.
+     */
+    private final Cache searchPages;
+
+    /**
+     * Кеш створених документів (docx) за ключем фільму та версією шаблону.
+     */
+    private final Cache documents;
+
+    /**
+     * Бін, що співставляє ключі фільмів за назвою з ключами за IMDb ID.
+     */
+    private final FilmKeyResolver filmKeyResolver;
+
+    /**
+     * Префіксний індекс назв фільмів, дані про які отримував додаток.
+     */
+    private final TitleIndex titleIndex;
+
+    /**
+     * Сховище записів про фільми на диску, що зберігає дані між
+     * перезапусками додатку.
+     */
+    private final FilmStore filmStore;
+
+    /**
+     * Скомпільований шаблон документа з інформацією про фільм.
+     */
+    private final DocumentTemplate documentTemplate;
+
+    /**
+     * Шаблон документа для потокового створення документів.
+     */
+    private final StreamingDocumentTemplate streamingDocumentTemplate;
+
+    /**
+     * Спосіб створення документів: потоковий (true) чи за допомогою POI.
+     */
+    private final boolean streamingRenderer;
+
+    /**
+     * Бін для вимірювання тривалості етапів опрацювання запитів.
+     */
+    private final StageTimer stageTimer;
+
+    /**
+     * Варіант представлення документа: формат, версія шаблону та спосіб
+     * створення. Визначає ключ документа в кеші та його ETag.
+     */
+    private final String documentVariant;
+
+    /**
+     * Час (у мс), після якого запис кешу даних про фільм вважається
+     * застарілим і оновлюється у фоновому режимі (0 - без оновлення).
+     * Застарілий запис повертається до спливання часу його життя в кеші.
+     */
+    private final long filmSoftTtlMillis;
+
+    /**
+     * Час (у мс), після якого запис про фільм не повертається навіть у
+     * випадку недоступності джерела даних (hard TTL). Визначається часом
+     * отримання даних, тому стосується й записів, завантажених зі сховища.
+     */
+    private final long filmHardTtlMillis;
+
+    /**
+     * Інтервал (у нс) між спробами оновлення запису, якщо попередня спроба
+     * завершилася помилкою.
+     */
+    private final long filmRefreshRetryNanos;
+
+    /**
+     * Ключ фільму -> час (System.nanoTime), до якого оновлення запису не
+     * виконується після невдалої спроби.
+     */
+    private final ConcurrentMap<FilmKey, Long> refreshBackoff = new ConcurrentHashMap<>();
+
+    /**
+     * Зображення, що використовується у випадку відсутності постера.
+     * Завантажується один раз під час створення сервісу.
+     */
+    private final ImageDTO defaultPoster;
+
+    /**
+     * Запити до джерела даних, що виконуються на даний момент.
+     */
+    private final SingleFlight<FilmKey, FilmRecord> filmFlights = new SingleFlight<>();
+
+    /**
+     * Завантаження постерів, що виконуються на даний момент.
+     */
+    private final SingleFlight<String, byte[]> posterFlights = new SingleFlight<>();
+
+    /**
+     * Запити сторінок результатів пошуку, що виконуються на даний момент.
+     */
+    private final SingleFlight<SearchKey, SearchPage> searchFlights = new SingleFlight<>();
+
+    /**
+     * Створення документів, що виконуються на даний момент.
+     */
+    private final SingleFlight<SimpleKey, byte[]> documentFlights = new SingleFlight<>();
+
     /**
      * Створює об'єкт (бін) сервіса.
      * @param env бін для отримання змінних із application.properties
      * @param requestParamMapper бін для співставлення звернень до API
+     * @param restTemplate бін для отримання інформації від джерела даних
+     * @param posterRestTemplate бін для завантаження постерів
+     * @param dataSourceHttpClient неблокуючий клієнт для звернень до джерела даних
+     * @param posterHttpClient неблокуючий клієнт для завантаження постерів
+     * @param dataSourceCircuitBreaker запобіжник звернень до джерела даних
+     * @param posterCircuitBreaker запобіжник завантаження постерів
+     * @param dataSourceRequestHedger бін для дублювання повільних запитів до
+     *                                джерела даних
+     * @param posterRequestHedger бін для дублювання повільних завантажень
+     *                            постерів
+     * @param executor пул потоків для асинхронного виконання
+     * @param cacheManager менеджер кешів
+     * @param filmKeyResolver бін для співставлення ключів фільмів
+     * @param titleIndex префіксний індекс назв фільмів
+     * @param filmStore сховище записів про фільми на диску
+     * @param documentTemplate скомпільований шаблон документа
+     * @param streamingDocumentTemplate шаблон документа для потокового
+     *                                  створення документів
+     * @param stageTimer бін для вимірювання тривалості етапів
      */
-    public FilmService(Environment env, RequestParamMapper requestParamMapper, RestTemplate restTemplate) {
+    public FilmService(Environment env, RequestParamMapper requestParamMapper, RestTemplate restTemplate,
+                       @Qualifier("posterRestTemplate") RestTemplate posterRestTemplate,
+                       @Qualifier("dataSourceHttpClient") NonBlockingHttpClient dataSourceHttpClient, @Qualifier("posterHttpClient") NonBlockingHttpClient posterHttpClient,
+                       @Qualifier("dataSourceCircuitBreaker") CircuitBreaker dataSourceCircuitBreaker, @Qualifier("posterCircuitBreaker") CircuitBreaker posterCircuitBreaker,
+                       @Qualifier("dataSourceRequestHedger") RequestHedger dataSourceRequestHedger, @Qualifier("posterRequestHedger") RequestHedger posterRequestHedger,
+                       @Qualifier("threadPoolTaskExecutor") Executor executor,
+                       CacheManager cacheManager, FilmKeyResolver filmKeyResolver, TitleIndex titleIndex, FilmStore filmStore, DocumentTemplate documentTemplate,
+                       StreamingDocumentTemplate streamingDocumentTemplate, StageTimer stageTimer) throws IOException {
         this.env = env;
         this.requestParamMapper = requestParamMapper;
         this.restTemplate = restTemplate;
+        this.posterRestTemplate = posterRestTemplate;
+        this.dataSourceHttpClient = dataSourceHttpClient;
+        this.posterHttpClient = posterHttpClient;
+        this.dataSourceCircuitBreaker = dataSourceCircuitBreaker;
+        this.posterCircuitBreaker = posterCircuitBreaker;
+        this.dataSourceRequestHedger = dataSourceRequestHedger;
+        this.posterRequestHedger = posterRequestHedger;
+        this.nonBlocking = HTTP_MODE_NON_BLOCKING.equals(env.getProperty("application.http.mode"));
+        this.executor = executor;
+        this.films = cacheManager.getCache("films");
+        this.bodies = cacheManager.getCache("bodies");
+        this.searchPages = cacheManager.getCache("searchPages");
+        this.documents = cacheManager.getCache("documents");
+        this.filmKeyResolver = filmKeyResolver;
+        this.titleIndex = titleIndex;
+        this.filmStore = filmStore;
+        this.documentTemplate = documentTemplate;
+        this.streamingDocumentTemplate = streamingDocumentTemplate;
+        this.stageTimer = stageTimer;
+        String renderer = env.getProperty("application.document.renderer");
+        if (!DOCUMENT_RENDERER_STREAMING.equals(renderer) && !DOCUMENT_RENDERER_POI.equals(renderer)) {
+            throw new IllegalStateException("Невідомий спосіб створення документів: " + renderer);
+        }
+        this.streamingRenderer = DOCUMENT_RENDERER_STREAMING.equals(renderer);
+        // документи, створені різними способами, рівноцінні, але не
+        // ідентичні побайтово
+        this.documentVariant = DOCUMENT_FORMAT + "-" + documentTemplate.getVersion() + "-" + renderer;
+        this.filmSoftTtlMillis = TimeUnit.SECONDS.toMillis(env.getProperty("application.cache.films.soft-ttl-seconds", long.class));
+        this.filmHardTtlMillis = TimeUnit.SECONDS.toMillis(env.getProperty("application.cache.films.ttl-seconds", long.class));
+        this.filmRefreshRetryNanos = TimeUnit.SECONDS.toNanos(env.getProperty("application.cache.films.refresh-retry-seconds", long.class));
         APPLICATION_QUERY_KEY_TITLE = env.getProperty("application.api.param.title");
         APPLICATION_QUERY_KEY_YEAR = env.getProperty("application.api.param.year");
         APPLICATION_QUERY_KEY_PLOT = env.getProperty("application.api.param.plot");
         APPLICATION_QUERY_KEY_FORMAT = env.getProperty("application.api.param.format");
         APPLICATION_QUERY_KEY_ID = env.getProperty("application.api.param.id");
+        APPLICATION_QUERY_KEY_TYPE = env.getProperty("application.api.param.type");
         APPLICATION_PROTOCOL = env.getProperty("application.protocol");
         APPLICATION_HOST = env.getProperty("application.host");
 
@@ -100,6 +360,11 @@ public class FilmService {
         DATA_SOURCE_QUERY_KEY_PLOT = requestParamMapper.mapParam(APPLICATION_QUERY_KEY_PLOT);
         DATA_SOURCE_QUERY_KEY_FORMAT = requestParamMapper.mapParam(APPLICATION_QUERY_KEY_FORMAT);
         DATA_SOURCE_QUERY_KEY_ID = requestParamMapper.mapParam(APPLICATION_QUERY_KEY_ID);
+        DATA_SOURCE_QUERY_KEY_TYPE = requestParamMapper.mapParam(APPLICATION_QUERY_KEY_TYPE);
+        DATA_SOURCE_QUERY_KEY_PAGE = requestParamMapper.mapParam(env.getProperty("application.api.param.page"));
+        // пошуковий запит передається тим самим параметром, що й назва
+        // фільму, але джерело даних використовує для нього окремий параметр
+        DATA_SOURCE_QUERY_KEY_SEARCH = env.getProperty("application.data-source.api.param.search");
 
         // додаток не вимагає використання api-key, тому співставлення не є необхідністю
         DATA_SOURCE_QUERY_KEY_API_KEY = env.getProperty("application.data-source.api.param.api-key");
@@ -121,139 +386,74 @@ public class FilmService {
         imageFormatMapper.put("eps", XWPFDocument.PICTURE_TYPE_EPS);
         imageFormatMapper.put("bmp", XWPFDocument.PICTURE_TYPE_BMP);
         imageFormatMapper.put("wpg", XWPFDocument.PICTURE_TYPE_WPG);
-    }
-
-    private static final String JSON_KEY_TYPE = "Type";
-    private static final String JSON_KEY_TITLE = "Title";
-    private static final String JSON_KEY_YEAR = "Year";
-    private static final String JSON_KEY_IMDB_ID = "imdbID";
-    private static final String JSON_KEY_PLOT = "Plot";
-
-    private static final String JSON_KEY_RATED = "Rated";
-    private static final String JSON_KEY_RUNTIME = "Runtime";
-    private static final String JSON_KEY_GENRE = "Genre";
-    private static final String JSON_KEY_RELEASED = "Released";
-
-    private static final String JSON_KEY_DIRECTOR = "Director";
-    private static final String JSON_KEY_WRITER = "Writer";
-    private static final String JSON_KEY_ACTORS = "Actors";
-
-    private static final String JSON_KEY_LANGUAGE = "Language";
-    private static final String JSON_KEY_COUNTRY = "Country";
-    private static final String JSON_KEY_AWARDS = "Awards";
 
-    private static final String JSON_KEY_PRODUCTION = "Production";
-    private static final String JSON_KEY_BOX_OFFICE = "BoxOffice";
-
-    private static final String JSON_KEY_METASCORE = "Metascore";
-    private static final String JSON_KEY_IMDB_RATING = "imdbRating";
-    private static final String JSON_KEY_IMDB_VOTES = "imdbVotes";
-    private static final String JSON_KEY_RATINGS = "Ratings";
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(env.getProperty("application.document.default-poster"))) {
+            defaultPoster = createImage(IOUtils.toByteArray(in), "png");
+        }
+    }
 
     private static final String JSON_RATING_SOURCE_KEY_SOURCE = "Source";
     private static final String JSON_RATING_SOURCE_KEY_VALUE = "Value";
 
-    private static final String JSON_KEY_POSTER = "Poster";
+    private static final String RESPONSE_FALSE = "False";
 
-    private static final String DEFAULT_FIELD_VALUE = "—";
+    private static final String STORE_KEY_SEPARATOR = "/";
 
-    private <T> T nvl(JSONObject obj, String key, T ifNull, Class<T> clazz) {
-        T data = (T)obj.get(key);
-        return (data != null ? data : ifNull);
-    }
+    private static final String HTTP_MODE_NON_BLOCKING = "non-blocking";
 
-    private String getValue(JSONObject obj, String key) {
-        return nvl(obj, key, DEFAULT_FIELD_VALUE, String.class);
-    }
-
-    private FilmDTO parse(String json) {
-        JSONObject obj = new JSONObject(json);
-        FilmDTO filmDTO = new FilmDTO();
-
-        filmDTO.setType(getValue(obj, JSON_KEY_TYPE));
-        filmDTO.setTitle(getValue(obj, JSON_KEY_TITLE));
-        filmDTO.setYear(getValue(obj, JSON_KEY_YEAR));
-        filmDTO.setImdbID(getValue(obj, JSON_KEY_IMDB_ID));
-
-        filmDTO.setRated(getValue(obj, JSON_KEY_RATED));
-        filmDTO.setRuntime(getValue(obj, JSON_KEY_RUNTIME));
-        filmDTO.setGenre(getValue(obj, JSON_KEY_GENRE));
-        filmDTO.setReleased(getValue(obj, JSON_KEY_RELEASED));
-
-        filmDTO.setPlot(getValue(obj, JSON_KEY_PLOT));
-
-        filmDTO.setDirector(getValue(obj, JSON_KEY_DIRECTOR));
-        filmDTO.setWriter(getValue(obj, JSON_KEY_WRITER));
-        filmDTO.setActors(getValue(obj, JSON_KEY_ACTORS));
-
-        filmDTO.setLanguage(getValue(obj, JSON_KEY_LANGUAGE));
-        filmDTO.setCountry(getValue(obj, JSON_KEY_COUNTRY));
-        filmDTO.setAwards(getValue(obj, JSON_KEY_AWARDS));
-
-        filmDTO.setProduction(getValue(obj, JSON_KEY_PRODUCTION));
-        filmDTO.setBoxOffice(getValue(obj, JSON_KEY_BOX_OFFICE));
+    /**
+     * Формат, у якому дані запитуються від джерела даних незалежно від
+     * формату відповіді клієнту.
+     */
+    private static final String DATA_SOURCE_FORMAT = "json";
 
-        filmDTO.setMetascore(getValue(obj, JSON_KEY_METASCORE));
-        filmDTO.setImdbRating(getValue(obj, JSON_KEY_IMDB_RATING));
-        filmDTO.setImdbVotes(getValue(obj, JSON_KEY_IMDB_VOTES));
+    private static final String DOCUMENT_FORMAT = "docx";
 
-        // рейтинги
-        Map<String, Map<String, String>> ratings = new HashMap<>();
-        JSONArray jsonArray = obj.getJSONArray(JSON_KEY_RATINGS);
+    private static final String DOCUMENT_RENDERER_STREAMING = "streaming";
+    private static final String DOCUMENT_RENDERER_POI = "poi";
 
-        int size = jsonArray.length();
-        JSONObject temp;
-        HashMap<String, String> currentMap;
-        for (int index = 0; index < size; ++index) {
-            temp = jsonArray.getJSONObject(index);
-            currentMap = new HashMap<>();
-            currentMap.put(JSON_RATING_SOURCE_KEY_SOURCE, getValue(temp, JSON_RATING_SOURCE_KEY_SOURCE));
-            currentMap.put(JSON_RATING_SOURCE_KEY_VALUE, getValue(temp, JSON_RATING_SOURCE_KEY_VALUE));
-            ratings.put(String.valueOf(index), currentMap);
-        }
-        filmDTO.setRatings(ratings);
-
-        //...
-        filmDTO.setPoster(getValue(obj, JSON_KEY_POSTER));
+    private static final String DEFAULT_FIELD_VALUE = "—";
 
-        return filmDTO;
+    private static String nvl(String value) {
+        return value != null ? value : DEFAULT_FIELD_VALUE;
     }
 
     /**
-     * Повертає тіло відповіді відповідно до параметрів, що містить у собі DTO.
+     * Перевіряє параметри, що містить у собі DTO, та повертає відповідний
+     * канонічний ключ фільму.
      * @param dto об'єкт для передачі даних про фільм
-     * @return тіло відповіді
+     * @return ключ фільму
      */
-    private String getURL(GetFilmDataRequest dto) throws FilmServiceException {
-        URLBuilder urlb = new URLBuilder(DATA_SOURCE_PROTOCOL, DATA_SOURCE_HOST);
+    private FilmKey getKey(GetFilmDataRequest dto) throws FilmServiceException {
         String title = dto.getTitle();
         String id = dto.getId();
+        String format = dto.getFormat();
+        if (format == null || format.isEmpty() || !requestParamMapper.isParameterValueValid(env.getProperty("application.api.param.format"), format)) {
+            format = null;
+        }
+
+        FilmKey key;
         if (title == null && id == null) {
             throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new PrimaryRequestParamOmitedException("Назва фільму або його IMDb ID повинен бути вказаний"));
         } else if (title != null && id != null) {
             throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamsConflictException("Конфлікт параметрів: треба вказувати або назву фільму, або його IMDb ID"));
-        } else if (title != null && !title.isEmpty()) {
-            urlb.addParameter(DATA_SOURCE_QUERY_KEY_TITLE, title);
-
-            String year = dto.getYear();
-            if (year != null && !year.isEmpty()) {
+        } else if (title != null && !title.trim().isEmpty()) {
+            Integer year = null;
+            String yearValue = dto.getYear();
+            if (yearValue != null && !yearValue.trim().isEmpty()) {
                 try {
-                    urlb.addParameter(DATA_SOURCE_QUERY_KEY_YEAR, Integer.parseInt(year));
+                    year = Integer.parseInt(yearValue.trim());
                 } catch (NumberFormatException e) {
                     throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Некоректне значення параметра року випуску фільму"));
                 }
             }
 
             String plot = dto.getPlot();
-            if (plot != null && !plot.isEmpty()) {
-                if (requestParamMapper.isParameterValueValid(env.getProperty("application.api.param.plot"), plot)) {
-                    urlb.addParameter(DATA_SOURCE_QUERY_KEY_PLOT, plot);
-                } else {
-                    throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Некоректне значення параметра, що відповідає за тип співпадіння"));
-                }
+            if (plot != null && !plot.isEmpty() && !requestParamMapper.isParameterValueValid(env.getProperty("application.api.param.plot"), plot)) {
+                throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Некоректне значення параметра, що відповідає за тип співпадіння"));
             }
-        } else if (id != null && !id.isEmpty()) {
-            urlb.addParameter(DATA_SOURCE_QUERY_KEY_ID, id);
+            key = FilmKey.ofTitle(title, year, plot);
+        } else if (id != null && !id.trim().isEmpty()) {
             // параметр співпадінь враховувати немає потреби, оскільки
             // здійснити пошук за "приблизним" IMDb неможливо (джерело даних
             // не підтримує таку комбінацію параметрів), тому вказання цього
@@ -262,115 +462,791 @@ public class FilmService {
             if (plot != null && !plot.isEmpty()) {
                 throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RedundantRequestParamException("Переданий надлишковий параметр, який відповідає за тип співпадіння"));
             }
+            key = FilmKey.ofId(id, null);
         } else {
             throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Значення обов'язкового параметру не може бути порожнім"));
         }
 
-        String format = dto.getFormat();
-        if (format != null && !format.isEmpty() && requestParamMapper.isParameterValueValid(env.getProperty("application.api.param.format"), format)) {
-            urlb.addParameter(DATA_SOURCE_QUERY_KEY_FORMAT, format);
-        } else {
+        if (format == null) {
             throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Параметр, що відповідає за формат відповіді, не може бути порожнім"));
         }
+        return key;
+    }
+
+    /**
+     * Повертає URL запиту до джерела даних для вказаного ключа фільму.
+     * @param key ключ фільму
+     * @return URL запиту
+     */
+    private String getURL(FilmKey key) {
+        URLBuilder urlb = new URLBuilder(DATA_SOURCE_PROTOCOL, DATA_SOURCE_HOST);
+        if (key.hasId()) {
+            urlb.addParameter(DATA_SOURCE_QUERY_KEY_ID, key.getId());
+        } else {
+            urlb.addParameter(DATA_SOURCE_QUERY_KEY_TITLE, key.getTitle());
+            if (key.getYear() != null) {
+                urlb.addParameter(DATA_SOURCE_QUERY_KEY_YEAR, key.getYear().intValue());
+            }
+        }
+        if (!FilmKey.DEFAULT_PLOT.equals(key.getPlot())) {
+            urlb.addParameter(DATA_SOURCE_QUERY_KEY_PLOT, key.getPlot());
+        }
+        urlb.addParameter(DATA_SOURCE_QUERY_KEY_FORMAT, DATA_SOURCE_FORMAT);
         urlb.addParameter(DATA_SOURCE_QUERY_KEY_API_KEY, DATA_SOURCE_API_KEY);
         return urlb.toString();
     }
 
+    /**
+     * Повертає дані про фільм відповідно до параметрів, що містить у собі DTO.
+     * Дані зберігаються в кеші за IMDb ID та варіантом опису сюжету і
+     * використовуються для формування відповідей у всіх форматах. Одночасні
+     * однакові запити до джерела даних об'єднуються в один. Застарілі дані
+     * повертаються одразу, а оновлюються у фоновому режимі.
+     * @param dto об'єкт для передачі даних про фільм
+     * @return дані про фільм
+     */
+    public CompletableFuture<FilmDTO> getFilm(GetFilmDataRequest dto) throws FilmServiceException {
+        return getFilm(getKey(dto));
+    }
+
+    /**
+     * Повертає дані про фільм разом із валідаторами їх представлення у
+     * форматі, вказаному в DTO (json, xml, docx), для умовних запитів. ETag
+     * визначається хешем вмісту запису про фільм (для документа - також
+     * версією шаблону), тому перевірка актуальності представлення клієнта не
+     * потребує формування відповіді чи документа. Валідатори та дані
+     * отримуються з одного запису, тому тіло відповіді, сформоване з цих
+     * даних ({@link #getEncodedBody(VersionedFilmDTO, String)},
+     * {@link #getDocumentBytes(VersionedFilmDTO)}), відповідає валідаторам.
+     * @param dto об'єкт для передачі даних про фільм
+     * @return дані про фільм та валідатори представлення
+     */
+    public CompletableFuture<VersionedFilmDTO> getVersionedFilm(GetFilmDataRequest dto) throws FilmServiceException {
+        FilmKey key = getKey(dto);
+        String format = dto.getFormat();
+        return getRecord(key).thenApply(record -> {
+            String variant = format;
+            if (DOCUMENT_FORMAT.equals(format)) {
+                requireFound(record.getFilm());
+                variant = documentVariant;
+            }
+            VersionDTO version = new VersionDTO("\"" + record.getHash() + "-" + variant + "\"", record.getLastModified());
+            return new VersionedFilmDTO(version, key, record.getFilm());
+        });
+    }
+
     /**
      * Повертає тіло відповіді відповідно до параметрів, що містить у собі DTO.
+     * Тіло відповіді формується локально з даних про фільм один раз та
+     * зберігається в кеші вже закодованим у UTF-8, тому повторні відповіді
+     * записуються клієнту без перетворень.
      * @param dto об'єкт для передачі даних про фільм
+     * @return тіло відповіді (UTF-8)
+     */
+    public CompletableFuture<byte[]> getRequestBody(GetFilmDataRequest dto) throws FilmServiceException {
+        return getEncodedBody(dto).thenApply(EncodedBody::getBody);
+    }
+
+    /**
+     * Повертає тіло відповіді відповідно до параметрів, що містить у собі DTO,
+     * разом із його стиснутим (gzip) варіантом. Стиснутий варіант створюється
+     * одночасно з тілом відповіді та зберігається в кеші разом із ним.
+     * @param dto об'єкт для передачі даних про фільм
+     * @return тіло відповіді та його стиснутий варіант
+     */
+    public CompletableFuture<EncodedBody> getEncodedBody(GetFilmDataRequest dto) throws FilmServiceException {
+        FilmKey key = getKey(dto);
+        String format = dto.getFormat();
+        return getFilm(key).thenApply(filmDTO -> getEncodedBody(key, filmDTO, format));
+    }
+
+    /**
+     * Повертає тіло відповіді у вказаному форматі (json, xml), сформоване з
+     * даних про фільм, отриманих разом із валідаторами.
+     * @param versionedFilm дані про фільм та валідатори представлення
+     * @param format формат відповіді
+     * @return тіло відповіді та його стиснутий варіант
+     */
+    public EncodedBody getEncodedBody(VersionedFilmDTO versionedFilm, String format) {
+        return getEncodedBody(versionedFilm.getKey(), versionedFilm.getFilm(), format);
+    }
+
+    private EncodedBody getEncodedBody(FilmKey key, FilmDTO filmDTO, String format) {
+        return bodies.get(getBodyKey(key, filmDTO, format), () -> encode(filmDTO, format));
+    }
+
+    /**
+     * Повертає тіла відповідей (JSON) для кожного запиту зі списку. Запити
+     * опрацьовуються так само, як і окремі, але одночасно виконується не
+     * більше встановленої кількості запитів. Результат кожного запиту
+     * передається обробнику одразу після його отримання; некоректний запит
+     * чи помилка отримання даних не переривають опрацювання решти.
+     * @param dtos об'єкти для передачі даних про фільми
+     * @param handler обробник тіла відповіді (або помилки) кожного запиту
+     * @return результат, що завершується після опрацювання всіх запитів
+     */
+    public CompletableFuture<Void> getRequestBodies(List<GetFilmDataRequest> dtos, BoundedFanOut.ResultHandler<byte[]> handler) {
+        return fanOut(dtos, env.getProperty("application.batch.max-concurrency", int.class), this::getRequestBody, handler);
+    }
+
+    /**
+     * Створює документи для кожного запиту зі списку. Одночасно створюється
+     * не більше встановленої кількості документів, тому обсяг пам'яті, що
+     * займають документи, не залежить від розміру списку. Документи беруться
+     * з кешу документів або створюються та зберігаються в ньому. Кожен
+     * документ передається обробнику одразу після отримання.
+     * @param dtos об'єкти для передачі даних про фільми
+     * @param handler обробник документа (або помилки) кожного запиту
+     * @return результат, що завершується після опрацювання всіх запитів
+     */
+    public CompletableFuture<Void> getDocuments(List<GetFilmDataRequest> dtos, BoundedFanOut.ResultHandler<byte[]> handler) {
+        return fanOut(dtos, env.getProperty("application.batch.document-concurrency", int.class), this::getDocumentBytes, handler);
+    }
+
+    private <R> CompletableFuture<Void> fanOut(List<GetFilmDataRequest> dtos, int maxConcurrency,
+                                               FilmOperation<R> operation, BoundedFanOut.ResultHandler<R> handler) {
+        return BoundedFanOut.run(dtos, maxConcurrency, dto -> {
+            try {
+                return operation.apply(dto);
+            } catch (FilmServiceException e) {
+                CompletableFuture<R> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }, handler);
+    }
+
+    @FunctionalInterface
+    private interface FilmOperation<R> {
+        CompletableFuture<R> apply(GetFilmDataRequest dto) throws FilmServiceException;
+    }
+
+    // тіло відповіді відповідає запису в кеші даних про фільм, тому має
+    // такий самий ключ (разом із форматом)
+    private static SimpleKey getBodyKey(FilmKey key, FilmDTO filmDTO, String format) {
+        String imdbID = filmDTO.getImdbID();
+        if (!RESPONSE_FALSE.equals(filmDTO.getResponse()) && imdbID != null && !imdbID.isEmpty()) {
+            key = key.withId(imdbID);
+        }
+        return new SimpleKey(key, format);
+    }
+
+    private EncodedBody encode(FilmDTO filmDTO, String format) {
+        String body = "xml".equals(format) ? FilmSerializer.toXml(filmDTO) : FilmSerializer.toJson(filmDTO);
+        return EncodedBody.of(body.getBytes(StandardCharsets.UTF_8),
+                env.getProperty("application.compression.min-size", int.class),
+                env.getProperty("application.compression.level", int.class));
+    }
+
+    /**
+     * Повертає сторінку результатів пошуку (JSON, UTF-8) відповідно до
+     * параметрів, що містить у собі DTO. Сторінки зберігаються в кеші; після
+     * отримання сторінки у фоновому режимі завантажується наступна, а дані
+     * про фільми, знайдені на запитаній сторінці, завантажуються в кеш даних
+     * про фільми, тому подальші запити за IMDb ID знайдених фільмів не
+     * звертаються до джерела даних. Для наступної сторінки, завантаженої
+     * наперед, дані про фільми не завантажуються, аби не збільшувати
+     * кількість звернень до джерела даних.
+     * @param dto об'єкт для передачі даних пошукового запиту
      * @return тіло відповіді
      */
-    @Async("threadPoolTaskExecutor")
-    public CompletableFuture<String> getRequestBody(GetFilmDataRequest dto) throws FilmServiceException, InterruptedException {
-        return CompletableFuture.completedFuture(restTemplate.getForObject(getURL(dto), String.class));
+    public CompletableFuture<byte[]> search(SearchFilmsRequest dto) throws FilmServiceException {
+        SearchKey key = getSearchKey(dto);
+        return getSearchPage(key).thenApply(page -> {
+            prefetchNextPage(key, page);
+            prefetchDetails(page);
+            return page.getBody();
+        });
     }
 
-    @Async("threadPoolTaskExecutor")
-    public CompletableFuture<XWPFDocument> getDocument(GetFilmDataRequest dto) throws FilmServiceException, URISyntaxException, IOException, XmlException, InterruptedException {
-        FilmDTO filmDTO = parse(restTemplate.getForObject(getURL(dto), String.class));
-        File file = new File(getClass().getClassLoader().getResource(TEMPLATE_FILENAME).toURI());
-        XWPFDocument document = new XWPFDocument(new FileInputStream(file));
+    private SearchKey getSearchKey(SearchFilmsRequest dto) throws FilmServiceException {
+        String title = dto.getTitle();
+        if (title == null || title.trim().isEmpty()) {
+            throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new PrimaryRequestParamOmitedException("Пошуковий запит повинен бути вказаний"));
+        }
 
-        Map<String, String> map = new HashMap<>();
-        map.put("type", filmDTO.getType());
-        map.put("title", filmDTO.getTitle());
-        map.put("year", filmDTO.getYear());
-        map.put("imdbID", filmDTO.getImdbID());
+        Integer year = null;
+        String yearValue = dto.getYear();
+        if (yearValue != null && !yearValue.trim().isEmpty()) {
+            try {
+                year = Integer.parseInt(yearValue.trim());
+            } catch (NumberFormatException e) {
+                throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Некоректне значення параметра року випуску фільму"));
+            }
+        }
 
-        map.put("rated", filmDTO.getRated());
-        map.put("runtime", filmDTO.getRuntime());
-        map.put("genre", filmDTO.getGenre());
-        map.put("released", filmDTO.getReleased());
+        String type = dto.getType();
+        if (type != null && type.isEmpty()) {
+            type = null;
+        }
+        if (type != null && !requestParamMapper.isParameterValueValid(APPLICATION_QUERY_KEY_TYPE, type)) {
+            throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Некоректне значення параметра, що відповідає за тип результатів"));
+        }
 
-        map.put("plot", filmDTO.getPlot());
+        int page = 1;
+        String pageValue = dto.getPage();
+        if (pageValue != null && !pageValue.trim().isEmpty()) {
+            try {
+                page = Integer.parseInt(pageValue.trim());
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+            if (page < 1 || page > env.getProperty("application.search.max-page", int.class)) {
+                throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Некоректне значення параметра номера сторінки"));
+            }
+        }
+        return new SearchKey(title, year, type, page);
+    }
 
-        map.put("director", filmDTO.getDirector());
-        map.put("writer", filmDTO.getWriter());
-        map.put("actors", filmDTO.getActors());
+    private String getSearchURL(SearchKey key) {
+        URLBuilder urlb = new URLBuilder(DATA_SOURCE_PROTOCOL, DATA_SOURCE_HOST);
+        urlb.addParameter(DATA_SOURCE_QUERY_KEY_SEARCH, key.getQuery());
+        if (key.getYear() != null) {
+            urlb.addParameter(DATA_SOURCE_QUERY_KEY_YEAR, key.getYear().intValue());
+        }
+        if (key.getType() != null) {
+            urlb.addParameter(DATA_SOURCE_QUERY_KEY_TYPE, key.getType());
+        }
+        urlb.addParameter(DATA_SOURCE_QUERY_KEY_PAGE, key.getPage());
+        urlb.addParameter(DATA_SOURCE_QUERY_KEY_FORMAT, DATA_SOURCE_FORMAT);
+        urlb.addParameter(DATA_SOURCE_QUERY_KEY_API_KEY, DATA_SOURCE_API_KEY);
+        return urlb.toString();
+    }
 
-        map.put("language", filmDTO.getLanguage());
-        map.put("country", filmDTO.getCountry());
-        map.put("awards", filmDTO.getAwards());
+    private CompletableFuture<SearchPage> getSearchPage(SearchKey key) {
+        SearchPage cached = searchPages.get(key, SearchPage.class);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return searchFlights.execute(key, () -> stageTimer.recordAsync("search.fetch", () -> fetch(getSearchURL(key))).thenApplyAsync(json -> {
+            FilmSearchDTO search = stageTimer.record("search.parse", () -> FilmParser.parseSearch(json));
+            learnSearchResults(search);
+            SearchPage page = new SearchPage(FilmSerializer.toJson(search).getBytes(StandardCharsets.UTF_8), getTotalResults(search), getImdbIDs(search));
+            searchPages.put(key, page);
+            return page;
+        }, executor));
+    }
 
-        map.put("production", filmDTO.getProduction());
-        map.put("boxOffice", filmDTO.getBoxOffice());
+    private static int getTotalResults(FilmSearchDTO search) {
+        if (RESPONSE_FALSE.equals(search.getResponse()) || search.getTotalResults() == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(search.getTotalResults().trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 
-        map.put("metascore", filmDTO.getMetascore());
-        map.put("imdbRating", filmDTO.getImdbRating());
-        map.put("imdbVotes", filmDTO.getImdbVotes());
+    private void prefetchNextPage(SearchKey key, SearchPage page) {
+        int pageSize = env.getProperty("application.search.page-size", int.class);
+        int next = key.getPage() + 1;
+        if (!env.getProperty("application.search.prefetch-next-page", boolean.class)
+                || (long) key.getPage() * pageSize >= page.getTotalResults()
+                || next > env.getProperty("application.search.max-page", int.class)) {
+            return;
+        }
+        SearchKey nextKey = key.withPage(next);
+        if (searchPages.get(nextKey) == null) {
+            getSearchPage(nextKey).exceptionally(e -> {
+                LOGGER.debug("Не вдалося завантажити сторінку результатів пошуку {}", nextKey, e);
+                return null;
+            });
+        }
+    }
 
-        map.put("author", env.getProperty("application.name"));
-        map.put("currentYear", String.valueOf((new Date().getYear())+1900));
-        XWPFDocumentManipulator.bindFields(document, map);
+    // назва та рік знайденого фільму однозначно визначають його IMDb ID
+    private void learnSearchResults(FilmSearchDTO search) {
+        for (FilmDTO result : search.getSearch()) {
+            String imdbID = result.getImdbID();
+            if (imdbID == null || imdbID.isEmpty()) {
+                continue;
+            }
+            String year = result.getYear();
+            if (result.getTitle() != null && year != null && year.matches("\\d{4}")) {
+                filmKeyResolver.learn(FilmKey.ofTitle(result.getTitle(), Integer.parseInt(year), null), imdbID);
+            }
+            titleIndex.add(result.getTitle(), year, imdbID, result.getType(), 0);
+        }
+    }
+
+    private static List<String> getImdbIDs(FilmSearchDTO search) {
+        List<String> imdbIDs = new ArrayList<>();
+        if (search.getSearch() != null) {
+            for (FilmDTO result : search.getSearch()) {
+                String imdbID = result.getImdbID();
+                if (imdbID != null && !imdbID.isEmpty()) {
+                    imdbIDs.add(imdbID);
+                }
+            }
+        }
+        return imdbIDs;
+    }
+
+    // повні дані про фільми, знайдені на запитаній сторінці, за потреби
+    // завантажуються у фоновому режимі
+    private void prefetchDetails(SearchPage page) {
+        if (!env.getProperty("application.search.prefetch-details", boolean.class)) {
+            return;
+        }
+        List<FilmKey> ids = new ArrayList<>();
+        for (String imdbID : page.getImdbIDs()) {
+            FilmKey key = FilmKey.ofId(imdbID, null);
+            if (films.get(key) == null) {
+                ids.add(key);
+            }
+        }
+        if (!ids.isEmpty()) {
+            BoundedFanOut.run(ids, env.getProperty("application.search.detail-prefetch-concurrency", int.class), this::getFilm, (index, filmDTO, e) -> {
+                if (e != null) {
+                    LOGGER.debug("Не вдалося завантажити дані про фільм {}", ids.get(index), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Повертає підказки (JSON, UTF-8) для вказаного початку назви фільму.
+     * Підказки формуються з індексу фільмів, дані про які отримував додаток,
+     * без звернень до джерела даних.
+     * @param query початок назви фільму або слова в ній
+     * @param limit максимальна кількість підказок (може бути null)
+     * @return тіло відповіді
+     */
+    public byte[] suggest(String query, String limit) throws FilmServiceException {
+        int maxLimit = env.getProperty("application.suggest.max-limit", int.class);
+        int count = env.getProperty("application.suggest.default-limit", int.class);
+        if (limit != null && !limit.trim().isEmpty()) {
+            try {
+                count = Integer.parseInt(limit.trim());
+            } catch (NumberFormatException e) {
+                count = 0;
+            }
+            if (count < 1 || count > maxLimit) {
+                throw new FilmServiceException(EXCEPTION_MESSAGE_BAD_INPUT, new RequestParamInvalidValueException("Некоректне значення параметра кількості підказок"));
+            }
+        }
+        List<TitleIndex.Suggestion> suggestions = query != null ? titleIndex.suggest(query, count) : Collections.emptyList();
+        return FilmSerializer.toJson(suggestions).getBytes(StandardCharsets.UTF_8);
+    }
 
-        // рейтинги
-        XWPFTable tableWithRatings = XWPFDocumentManipulator.getTableWithContent(document, "Metascore");
-        int size = tableWithRatings.getRows().size();
+    /**
+     * Повертає документ з інформацією про фільм відповідно до параметрів, що
+     * містить у собі DTO. Одночасні однакові завантаження постера
+     * об'єднуються в одне. Потоковий документ створюється безпосередньо під
+     * час запису, тому об'єктна модель документа не зберігається в пам'яті.
+     * @param dto об'єкт для передачі даних про фільм
+     * @return документ
+     */
+    public CompletableFuture<FilmDocument> getDocument(GetFilmDataRequest dto) throws FilmServiceException {
+        return getFilm(getKey(dto))
+                .thenApply(this::requireFound)
+                .thenCompose(filmDTO -> getPoster(filmDTO)
+                        .thenApplyAsync(imageDTO -> createDocument(filmDTO, imageDTO), executor));
+    }
 
-        Map<String, Map<String, String>> ratings = filmDTO.getRatings();
-        Set<String> keys = ratings.keySet();
-        for (String key : keys) {
-            Map<String, String> value = ratings.get(key);
+    /**
+     * Повертає вміст документа (docx) з інформацією про фільм відповідно до
+     * параметрів, що містить у собі DTO. Документ створюється один раз та
+     * зберігається в кеші за ключем фільму (IMDb ID, варіант опису сюжету) та
+     * версією шаблону, тому повторні запити не звертаються до джерела даних,
+     * не завантажують постер і не створюють документ знову. Одночасні
+     * однакові створення документа об'єднуються в одне.
+     * @param dto об'єкт для передачі даних про фільм
+     * @return вміст документа
+     */
+    public CompletableFuture<byte[]> getDocumentBytes(GetFilmDataRequest dto) throws FilmServiceException {
+        FilmKey key = getKey(dto);
+        return getFilm(key)
+                .thenApply(this::requireFound)
+                .thenCompose(filmDTO -> getDocumentBytes(key, filmDTO));
+    }
+
+    /**
+     * Повертає вміст документа (docx), створеного з даних про фільм,
+     * отриманих разом із валідаторами (у форматі docx, тому наявність даних
+     * про фільм вже перевірена).
+     * @param versionedFilm дані про фільм та валідатори представлення
+     * @return вміст документа
+     */
+    public CompletableFuture<byte[]> getDocumentBytes(VersionedFilmDTO versionedFilm) {
+        return getDocumentBytes(versionedFilm.getKey(), versionedFilm.getFilm());
+    }
 
-            XWPFTableRow lastRow = tableWithRatings.getRow(size - 1);
-            CTRow ctrow = CTRow.Factory.parse(lastRow.getCtRow().newInputStream());
-            XWPFTableRow newRow = new XWPFTableRow(ctrow, tableWithRatings);
+    private CompletableFuture<byte[]> getDocumentBytes(FilmKey key, FilmDTO filmDTO) {
+        SimpleKey documentKey = getBodyKey(key, filmDTO, documentVariant);
+        byte[] cached = documents.get(documentKey, byte[].class);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return documentFlights.execute(documentKey, () -> getPoster(filmDTO)
+                .thenApplyAsync(imageDTO -> {
+                    byte[] content = writeDocument(createDocument(filmDTO, imageDTO));
+                    // документ, у якому постер фільму тимчасово замінений
+                    // постером за замовчуванням, не зберігається в кеші, тому
+                    // наступний запит знову спробує отримати постер
+                    if (imageDTO != defaultPoster || getPosterFormatName(filmDTO.getPoster()) == null) {
+                        documents.put(documentKey, content);
+                    }
+                    return content;
+                }, executor));
+    }
 
-            // для видалення тексту, що був отриманий із попереднього рядка шляхом використання його xml-розмітки
-            for (XWPFTableCell cell : newRow.getTableCells()) {
-                XWPFDocumentManipulator.removeAllParagraphs(cell);
+    private byte[] writeDocument(FilmDocument document) {
+        return stageTimer.record("document.write", () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (FilmDocument doc = document) {
+                doc.write(out);
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
+            return out.toByteArray();
+        });
+    }
 
-            newRow.getCell(0).setText(value.get(JSON_RATING_SOURCE_KEY_SOURCE));
-            newRow.getCell(1).setText(value.get(JSON_RATING_SOURCE_KEY_VALUE));
+    // отримання даних про фільм з кешу або від джерела даних; запити за
+    // назвою, для якої вже відомий IMDb ID, звертаються до запису за IMDb ID
+    private CompletableFuture<FilmDTO> getFilm(FilmKey requestedKey) {
+        return getRecord(requestedKey).thenApply(FilmRecord::getFilm);
+    }
 
-            tableWithRatings.addRow(newRow, size);
-            ++size;
+    // застарілий запис (старший за soft TTL) повертається одразу, а його
+    // оновлення виконується у фоновому режимі; запис, старший за hard TTL,
+    // не повертається (вік запису визначається часом отримання даних, а не
+    // часом додавання в кеш)
+    private CompletableFuture<FilmRecord> getRecord(FilmKey requestedKey) {
+        FilmKey key = filmKeyResolver.resolve(requestedKey);
+        FilmRecord cached = films.get(key, FilmRecord.class);
+        if (cached != null && !isExpired(cached.getLastModified())) {
+            refreshIfStale(key, cached);
+            return CompletableFuture.completedFuture(cached);
         }
+        refreshBackoff.remove(key);
+        // оновлення запису, завантаженого зі сховища, запускається після
+        // завершення завантаження, аби не приєднатися до нього
+        return filmFlights.execute(key, () -> loadFilm(key))
+                .thenApply(record -> {
+                    refreshIfStale(key, record);
+                    return record;
+                });
+    }
 
-        String poster = filmDTO.getPoster();
-        ImageDTO imageDTO;
-        BufferedImage bufferedImage;
-        byte[] data;
-        InputStream io;
-        String formatName;
-
-        if (poster != null && !poster.equals(DEFAULT_FIELD_VALUE) && imageFormatMapper.containsKey(formatName = poster.substring(poster.lastIndexOf('.')+1, poster.length()).toLowerCase())) {
-            data = restTemplate.getForObject(poster, byte[].class);
+    private boolean isExpired(long lastModified) {
+        return filmHardTtlMillis > 0 && System.currentTimeMillis() - lastModified >= filmHardTtlMillis;
+    }
+
+    private void refreshIfStale(FilmKey key, FilmRecord record) {
+        if (filmSoftTtlMillis > 0 && System.currentTimeMillis() - record.getLastModified() >= filmSoftTtlMillis) {
+            refreshFilm(key, record);
+        }
+    }
+
+    // одночасно виконується не більше одного оновлення запису (разом із
+    // завантаженням за відсутності запису); поки джерело даних недоступне,
+    // оновлення повторюється не частіше за встановлений інтервал, а клієнти
+    // отримують застарілий запис
+    private void refreshFilm(FilmKey key, FilmRecord stale) {
+        Long retryAt = refreshBackoff.get(key);
+        if (retryAt != null && System.nanoTime() - retryAt < 0) {
+            return;
+        }
+        filmFlights.execute(key, () -> stageTimer.recordAsync("refresh", () -> fetchFilm(key))
+                .thenApply(filmDTO -> {
+                    // відповідь "не знайдено" для фільму, що був знайдений,
+                    // вважається тимчасовою помилкою джерела даних
+                    if (RESPONSE_FALSE.equals(filmDTO.getResponse()) && !RESPONSE_FALSE.equals(stale.getFilm().getResponse())) {
+                        throw new CompletionException(new FilmServiceException(EXCEPTION_MESSAGE_NOT_FOUND, new FilmNotFoundException(filmDTO.getError())));
+                    }
+                    return cacheFilm(key, filmDTO, System.currentTimeMillis());
+                }))
+                .whenComplete((record, e) -> {
+                    if (e != null) {
+                        refreshBackoff.put(key, System.nanoTime() + filmRefreshRetryNanos);
+                        LOGGER.debug("Не вдалося оновити дані про фільм {}", key, e);
+                    } else {
+                        refreshBackoff.remove(key);
+                    }
+                });
+    }
+
+    // завантаження даних про фільм зі сховища на диску, а у випадку їх
+    // відсутності (або якщо запис старший за hard TTL) - від джерела даних;
+    // запис зі сховища зберігає час отримання даних
+    private CompletableFuture<FilmRecord> loadFilm(FilmKey key) {
+        if (key.hasId()) {
+            FilmStore.StoredValue stored = filmStore.get(getStoreKey(key));
+            if (stored != null && !isExpired(stored.getWrittenAt())) {
+                return CompletableFuture.supplyAsync(() -> cacheFilm(key,
+                        stageTimer.record("parse", () -> FilmParser.parse(stored.getValue())), stored.getWrittenAt()), executor);
+            }
+        }
+        return fetchFilm(key).thenApply(filmDTO -> cacheFilm(key, filmDTO, System.currentTimeMillis()));
+    }
+
+    // отримання даних про фільм від джерела даних; відповідь обробляється в
+    // пулі потоків, а не в потоці вводу-виводу клієнта
+    private CompletableFuture<FilmDTO> fetchFilm(FilmKey key) {
+        return stageTimer.recordAsync("fetch", () -> fetch(getURL(key))).thenApplyAsync(json -> {
+            FilmDTO filmDTO = stageTimer.record("parse", () -> FilmParser.parse(json));
+            storeFilm(key, filmDTO);
+            return filmDTO;
+        }, executor);
+    }
+
+    // поки запобіжник розімкнений, звернення одразу завершуються помилкою,
+    // а запити, для яких є дані в кеші чи сховищі, опрацьовуються без
+    // звернень до джерела даних
+    private CompletableFuture<byte[]> fetch(String url) {
+        return dataSourceCircuitBreaker.execute(() -> dataSourceRequestHedger.execute(() -> {
+            if (nonBlocking) {
+                return dataSourceHttpClient.getForBytes(url);
+            }
+            return CompletableFuture.supplyAsync(() -> restTemplate.getForObject(url, byte[].class), executor);
+        }));
+    }
+
+    private CompletableFuture<byte[]> fetchPoster(String url) {
+        return posterCircuitBreaker.execute(() -> posterRequestHedger.execute(() -> {
+            if (nonBlocking) {
+                return posterHttpClient.getForBytes(url);
+            }
+            return CompletableFuture.supplyAsync(() -> posterRestTemplate.getForObject(url, byte[].class), executor);
+        }));
+    }
+
+    private void storeFilm(FilmKey key, FilmDTO filmDTO) {
+        String imdbID = filmDTO.getImdbID();
+        if (RESPONSE_FALSE.equals(filmDTO.getResponse()) || imdbID == null || imdbID.isEmpty()) {
+            return;
+        }
+        try {
+            filmStore.put(getStoreKey(key.withId(imdbID)), FilmSerializer.toJson(filmDTO).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // запис буде отриманий від джерела даних наступного разу
+            LOGGER.warn("Не вдалося зберегти фільм {} у сховищі", imdbID, e);
+        }
+    }
+
+    private static String getStoreKey(FilmKey key) {
+        return key.getId() + STORE_KEY_SEPARATOR + key.getPlot();
+    }
+
+    /**
+     * Заповнює кеш записами зі сховища на диску. Виконується у фоновому
+     * режимі після запуску додатку. Записи зберігають час отримання даних,
+     * тому застарілі записи оновлюються під час першого звернення, а записи,
+     * старші за hard TTL, пропускаються.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        int limit = env.getProperty("application.store.warm-up-max-entries", int.class);
+        executor.execute(() -> filmStore.forEach((storeKey, stored) -> {
+            if (isExpired(stored.getWrittenAt())) {
+                return;
+            }
+            int separator = storeKey.lastIndexOf(STORE_KEY_SEPARATOR);
+            try {
+                FilmKey key = FilmKey.ofId(storeKey.substring(0, separator), storeKey.substring(separator + 1));
+                cacheFilm(key, FilmParser.parse(stored.getValue()), stored.getWrittenAt());
+            } catch (RuntimeException e) {
+                LOGGER.warn("Пропущений некоректний запис сховища {}", storeKey, e);
+            }
+        }, limit));
+    }
+
+    private FilmRecord cacheFilm(FilmKey key, FilmDTO filmDTO, long lastModified) {
+        FilmRecord record = FilmRecord.of(filmDTO, lastModified);
+        String imdbID = filmDTO.getImdbID();
+        if (!RESPONSE_FALSE.equals(filmDTO.getResponse()) && imdbID != null && !imdbID.isEmpty()) {
+            filmKeyResolver.learn(key, imdbID);
+            // точна назва та рік фільму також однозначно визначають його
+            String year = filmDTO.getYear();
+            if (filmDTO.getTitle() != null && year != null && year.matches("\\d{4}")) {
+                filmKeyResolver.learn(FilmKey.ofTitle(filmDTO.getTitle(), Integer.parseInt(year), key.getPlot()), imdbID);
+            }
+            titleIndex.add(filmDTO.getTitle(), year, imdbID, filmDTO.getType(), getVotes(filmDTO));
+            putFilm(key.withId(imdbID), record);
         } else {
-            FileInputStream fis = new FileInputStream(new File(getClass().getClassLoader().getResource("Image.png").toURI()));
-            formatName = "png";
-            data = IOUtils.toByteArray(fis);
-            fis.close();
+            // відповідь без IMDb ID (наприклад, фільм не знайдено)
+            // зберігається за вихідним ключем
+            putFilm(key, record);
+        }
+        return record;
+    }
+
+    // кількість голосів IMDb у вигляді числа ("1,234,567" -> 1234567)
+    private static long getVotes(FilmDTO filmDTO) {
+        String votes = filmDTO.getImdbVotes();
+        if (votes == null) {
+            return 0;
+        }
+        long result = 0;
+        for (int i = 0; i < votes.length(); ++i) {
+            char c = votes.charAt(i);
+            if (c >= '0' && c <= '9') {
+                result = result * 10 + (c - '0');
+            } else if (c != ',') {
+                return 0;
+            }
+        }
+        return result;
+    }
+
+    // тіла відповідей та документи, сформовані з попереднього запису,
+    // стають застарілими, якщо вміст запису змінився
+    private void putFilm(FilmKey key, FilmRecord record) {
+        FilmRecord previous = films.get(key, FilmRecord.class);
+        films.put(key, record);
+        if (previous != null && previous.getHash().equals(record.getHash())) {
+            return;
         }
+        bodies.evict(new SimpleKey(key, "json"));
+        bodies.evict(new SimpleKey(key, "xml"));
+        documents.evict(new SimpleKey(key, documentVariant));
+    }
+
+    private FilmDTO requireFound(FilmDTO filmDTO) {
+        if (RESPONSE_FALSE.equals(filmDTO.getResponse())) {
+            throw new CompletionException(new FilmServiceException(EXCEPTION_MESSAGE_NOT_FOUND, new FilmNotFoundException(filmDTO.getError())));
+        }
+        return filmDTO;
+    }
+
+    // якщо постер недоступний (запобіжник розімкнений, помилка завантаження
+    // чи некоректне зображення), документ створюється з постером за
+    // замовчуванням
+    private CompletableFuture<ImageDTO> getPoster(FilmDTO filmDTO) {
+        String poster = filmDTO.getPoster();
+        String formatName = getPosterFormatName(poster);
+        if (formatName != null) {
+            return posterFlights.execute(poster, () -> stageTimer.recordAsync("poster.fetch", () -> fetchPoster(poster)))
+                    .thenApplyAsync(data -> stageTimer.record("poster.decode", () -> createImage(data, formatName)), executor)
+                    .exceptionally(e -> {
+                        LOGGER.debug("Не вдалося отримати постер {}, використовується постер за замовчуванням", poster, e);
+                        return defaultPoster;
+                    });
+        }
+        return CompletableFuture.completedFuture(defaultPoster);
+    }
+
+    // формат зображення постера або null, якщо постер не вказаний чи його
+    // формат не підтримується
+    private String getPosterFormatName(String poster) {
+        if (poster == null) {
+            return null;
+        }
+        String formatName = poster.substring(poster.lastIndexOf('.')+1, poster.length()).toLowerCase();
+        return imageFormatMapper.containsKey(formatName) ? formatName : null;
+    }
+
+    private ImageDTO createImage(byte[] data, String formatName) {
+        try {
+            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(data));
+            return new ImageDTO(data, bufferedImage.getWidth(), bufferedImage.getHeight(), imageFormatMapper.get(formatName), "Poster");
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private FilmDocument createDocument(FilmDTO filmDTO, ImageDTO imageDTO) {
+        return stageTimer.record("document.create", () -> streamingRenderer
+                ? createStreamingDocument(filmDTO, imageDTO)
+                : FilmDocument.of(createXWPFDocument(filmDTO, imageDTO)));
+    }
+
+    // потоковий документ створюється під час запису, тому тут лише
+    // готуються значення полів та рейтинги
+    private FilmDocument createStreamingDocument(FilmDTO filmDTO, ImageDTO imageDTO) {
+        List<Map<String, String>> ratings = new ArrayList<>();
+        for (Map<String, String> value : filmDTO.getRatings().values()) {
+            Map<String, String> rating = new HashMap<>(4);
+            rating.put(StreamingDocumentTemplate.RATING_SOURCE, nvl(value.get(JSON_RATING_SOURCE_KEY_SOURCE)));
+            rating.put(StreamingDocumentTemplate.RATING_VALUE, nvl(value.get(JSON_RATING_SOURCE_KEY_VALUE)));
+            ratings.add(rating);
+        }
+        return streamingDocumentTemplate.newDocument(getDocumentFields(filmDTO), ratings, imageDTO);
+    }
+
+    // значення полів шаблону документа
+    private Map<String, String> getDocumentFields(FilmDTO filmDTO) {
+        Map<String, String> map = new HashMap<>();
+        map.put("type", nvl(filmDTO.getType()));
+        map.put("title", nvl(filmDTO.getTitle()));
+        map.put("year", nvl(filmDTO.getYear()));
+        map.put("imdbID", nvl(filmDTO.getImdbID()));
+
+        map.put("rated", nvl(filmDTO.getRated()));
+        map.put("runtime", nvl(filmDTO.getRuntime()));
+        map.put("genre", nvl(filmDTO.getGenre()));
+        map.put("released", nvl(filmDTO.getReleased()));
+
+        map.put("plot", nvl(filmDTO.getPlot()));
+
+        map.put("director", nvl(filmDTO.getDirector()));
+        map.put("writer", nvl(filmDTO.getWriter()));
+        map.put("actors", nvl(filmDTO.getActors()));
+
+        map.put("language", nvl(filmDTO.getLanguage()));
+        map.put("country", nvl(filmDTO.getCountry()));
+        map.put("awards", nvl(filmDTO.getAwards()));
+
+        map.put("production", nvl(filmDTO.getProduction()));
+        map.put("boxOffice", nvl(filmDTO.getBoxOffice()));
+
+        map.put("metascore", nvl(filmDTO.getMetascore()));
+        map.put("imdbRating", nvl(filmDTO.getImdbRating()));
+        map.put("imdbVotes", nvl(filmDTO.getImdbVotes()));
+
+        map.put("author", env.getProperty("application.name"));
+        map.put("currentYear", String.valueOf((new Date().getYear())+1900));
+        return map;
+    }
 
-        io = new ByteArrayInputStream(data);
-        bufferedImage = ImageIO.read(io);
-        imageDTO = new ImageDTO(data, bufferedImage.getWidth(), bufferedImage.getHeight(), imageFormatMapper.get(formatName), "Poster");
-        XWPFDocumentManipulator.bindImageToField(document, "poster", imageDTO);
+    private XWPFDocument createXWPFDocument(FilmDTO filmDTO, ImageDTO imageDTO) {
+        try {
+            StageTimer.Sample sample = stageTimer.start();
+            DocumentTemplate.Instance instance = documentTemplate.newInstance();
+            XWPFDocument document = instance.getDocument();
+            sample.stop("document.template");
 
-        return CompletableFuture.completedFuture(document);
+            sample = stageTimer.start();
+            XWPFDocumentManipulator.bindFields(instance.getFieldParagraphs(), getDocumentFields(filmDTO));
+            sample.stop("document.fields");
+
+            // рейтинги
+            sample = stageTimer.start();
+            XWPFTable tableWithRatings = instance.getRatingsTable();
+            int size = tableWithRatings.getRows().size();
+
+            Map<String, Map<String, String>> ratings = filmDTO.getRatings();
+            Set<String> keys = ratings.keySet();
+            for (String key : keys) {
+                Map<String, String> value = ratings.get(key);
+
+                XWPFTableRow lastRow = tableWithRatings.getRow(size - 1);
+                CTRow ctrow = CTRow.Factory.parse(lastRow.getCtRow().newInputStream());
+                XWPFTableRow newRow = new XWPFTableRow(ctrow, tableWithRatings);
+
+                // для видалення тексту, що був отриманий із попереднього рядка шляхом використання його xml-розмітки
+                for (XWPFTableCell cell : newRow.getTableCells()) {
+                    XWPFDocumentManipulator.removeAllParagraphs(cell);
+                }
+
+                newRow.getCell(0).setText(nvl(value.get(JSON_RATING_SOURCE_KEY_SOURCE)));
+                newRow.getCell(1).setText(nvl(value.get(JSON_RATING_SOURCE_KEY_VALUE)));
+
+                tableWithRatings.addRow(newRow, size);
+                ++size;
+            }
+            sample.stop("document.ratings");
+
+            sample = stageTimer.start();
+            XWPFDocumentManipulator.bindImageToField(instance.getFieldParagraphs(), "poster", imageDTO);
+            sample.stop("document.poster");
+            return document;
+        } catch (IOException | XmlException e) {
+            throw new CompletionException(e);
+        }
     }
 
     private final Map<String, Integer> imageFormatMapper;
@@ -0,0 +1,406 @@
+package com.fluffy.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Клас сховища записів про фільми на диску. Записи дописуються в кінець
+ * журналу, що складається із сегментів - файлів фіксованого розміру,
+ * відображених у пам'ять. Індекс "ключ -> розташування запису" зберігається
+ * в пам'яті та відновлюється під час відкриття сховища шляхом читання всіх
+ * сегментів.
+ *
+ * Формат запису: [int довжина][int CRC32][long час запису][int довжина ключа]
+ * [ключ][значення], де довжина та контрольна сума обчислюються для частини,
+ * що починається з часу запису. Нульова довжина означає кінець даних
+ * сегмента, а пошкоджений запис (наприклад, недописаний через аварійне
+ * завершення) - кінець журналу.
+ *
+ * Записи, старші за час зберігання, вважаються відсутніми та видаляються під
+ * час ущільнення, яке переписує живі записи із малозаповнених сегментів у
+ * поточний сегмент.
+ * @author Сивоконь Вадим
+ */
+public class FilmStore implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilmStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+
+    /**
+     * Розмір полів довжини та контрольної суми.
+     */
+    private static final int RECORD_PREFIX_SIZE = 8;
+
+    /**
+     * Розмір полів часу запису та довжини ключа.
+     */
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    /**
+     * Директорія сховища.
+     */
+    private final Path directory;
+
+    /**
+     * Розмір одного сегмента в байтах.
+     */
+    private final int segmentSize;
+
+    /**
+     * Час зберігання записів у мілісекундах (0 - без обмеження).
+     */
+    private final long retentionMillis;
+
+    /**
+     * Мінімальна частка живих даних, за якої сегмент не ущільнюється.
+     */
+    private final double compactionMinLiveRatio;
+
+    /**
+     * Індекс записів.
+     */
+    private final Map<String, RecordPointer> index = new ConcurrentHashMap<>();
+
+    /**
+     * Сегменти журналу в порядку створення; останній - поточний.
+     */
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * Поточний сегмент, у який дописуються записи.
+     */
+    private Segment active;
+
+    /**
+     * Створює (або відкриває наявне) сховище у вказаній директорії.
+     * @param directory директорія сховища
+     * @param segmentSize розмір сегмента в байтах
+     * @param retentionSeconds час зберігання записів у секундах (0 - без обмеження)
+     * @param compactionMinLiveRatio мінімальна частка живих даних сегмента
+     * @throws IOException у випадку помилки доступу до файлів
+     */
+    public FilmStore(Path directory, int segmentSize, long retentionSeconds, double compactionMinLiveRatio) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.retentionMillis = retentionSeconds > 0 ? retentionSeconds * 1000 : 0;
+        this.compactionMinLiveRatio = compactionMinLiveRatio;
+
+        Files.createDirectories(directory);
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // сторонній файл не є сегментом
+                }
+            }
+        }
+        ids.sort(null);
+        for (int id : ids) {
+            Segment segment = Segment.open(segmentPath(id), id, segmentSize);
+            recover(segment);
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.open(segmentPath(1), 1, segmentSize));
+        }
+        active = segments.get(segments.size() - 1);
+    }
+
+    /**
+     * Повертає значення за ключем разом із часом його запису або null, якщо
+     * запис відсутній чи застарів.
+     * @param key ключ
+     * @return значення та час запису
+     */
+    public StoredValue get(String key) {
+        RecordPointer pointer = index.get(key);
+        if (pointer == null || isExpired(pointer, System.currentTimeMillis())) {
+            return null;
+        }
+        return new StoredValue(pointer.readValue(), pointer.writtenAt);
+    }
+
+    /**
+     * Зберігає значення за ключем, замінюючи попереднє.
+     * @param key ключ
+     * @param value значення
+     * @throws IOException у випадку помилки доступу до файлів
+     */
+    public synchronized void put(String key, byte[] value) throws IOException {
+        append(key.getBytes(StandardCharsets.UTF_8), value, System.currentTimeMillis());
+    }
+
+    /**
+     * Передає вказаній функції всі актуальні записи сховища.
+     * @param consumer функція, що отримує ключ, значення та час запису
+     * @param limit максимальна кількість записів
+     */
+    public void forEach(BiConsumer<String, StoredValue> consumer, int limit) {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (Map.Entry<String, RecordPointer> entry : index.entrySet()) {
+            if (count >= limit) {
+                return;
+            }
+            if (!isExpired(entry.getValue(), now)) {
+                RecordPointer pointer = entry.getValue();
+                consumer.accept(entry.getKey(), new StoredValue(pointer.readValue(), pointer.writtenAt));
+                ++count;
+            }
+        }
+    }
+
+    /**
+     * Повертає кількість записів в індексі.
+     * @return кількість записів
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Повертає кількість сегментів журналу.
+     * @return кількість сегментів
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Видаляє із індексу застарілі записи та переписує живі записи із
+     * сегментів, частка живих даних у яких менша за встановлену, після чого
+     * видаляє ці сегменти.
+     * @throws IOException у випадку помилки доступу до файлів
+     */
+    public synchronized void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        index.values().removeIf(pointer -> isExpired(pointer, now));
+
+        Map<Segment, Long> liveBytes = new HashMap<>();
+        for (RecordPointer pointer : index.values()) {
+            liveBytes.merge(pointer.segment, (long) pointer.length + RECORD_PREFIX_SIZE, Long::sum);
+        }
+
+        for (Segment segment : segments) {
+            if (segment == active) {
+                continue;
+            }
+            long live = liveBytes.getOrDefault(segment, 0L);
+            if (segment.position > 0 && (double) live / segment.position >= compactionMinLiveRatio) {
+                continue;
+            }
+            for (Map.Entry<String, RecordPointer> entry : index.entrySet()) {
+                RecordPointer pointer = entry.getValue();
+                if (pointer.segment == segment) {
+                    append(entry.getKey().getBytes(StandardCharsets.UTF_8), pointer.readValue(), pointer.writtenAt);
+                }
+            }
+            segments.remove(segment);
+            segment.close();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                // файл, відображений у пам'ять, може бути заблокований
+                // операційною системою - він буде видалений наступного разу
+                LOGGER.warn("Не вдалося видалити сегмент {}", segment.path, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private boolean isExpired(RecordPointer pointer, long now) {
+        return retentionMillis > 0 && now - pointer.writtenAt > retentionMillis;
+    }
+
+    private Path segmentPath(int id) {
+        return directory.resolve(String.format("%08d%s", id, SEGMENT_SUFFIX));
+    }
+
+    // дописування запису в поточний сегмент; викликається під блокуванням
+    private void append(byte[] key, byte[] value, long writtenAt) throws IOException {
+        int length = RECORD_HEADER_SIZE + key.length + value.length;
+        int recordSize = RECORD_PREFIX_SIZE + length;
+        if (recordSize > segmentSize) {
+            // запис, що не вміщується в сегмент, не зберігається
+            return;
+        }
+        if (active.position + recordSize > active.capacity()) {
+            active.buffer.force();
+            active = Segment.open(segmentPath(active.id + 1), active.id + 1, segmentSize);
+            segments.add(active);
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.putLong(writtenAt).putInt(key.length).put(key).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, length);
+
+        int offset = active.position;
+        ByteBuffer out = active.writer;
+        out.position(offset);
+        out.putInt(length).putInt((int) crc.getValue()).put(body.array());
+        active.position = offset + recordSize;
+
+        index.put(new String(key, StandardCharsets.UTF_8), new RecordPointer(active, offset, length, key.length, writtenAt));
+    }
+
+    // відновлення індексу за вмістом сегмента
+    private void recover(Segment segment) {
+        ByteBuffer in = segment.reader();
+        int offset = 0;
+        CRC32 crc = new CRC32();
+        while (offset + RECORD_PREFIX_SIZE + RECORD_HEADER_SIZE <= in.capacity()) {
+            int length = in.getInt(offset);
+            if (length < RECORD_HEADER_SIZE || offset + RECORD_PREFIX_SIZE + length > in.capacity()) {
+                break;
+            }
+            byte[] body = new byte[length];
+            in.position(offset + RECORD_PREFIX_SIZE);
+            in.get(body);
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != in.getInt(offset + 4)) {
+                LOGGER.warn("Пошкоджений запис у сегменті {} за зміщенням {}", segment.path, offset);
+                break;
+            }
+            ByteBuffer header = ByteBuffer.wrap(body);
+            long writtenAt = header.getLong();
+            int keyLength = header.getInt();
+            String key = new String(body, RECORD_HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+            index.put(key, new RecordPointer(segment, offset, length, keyLength, writtenAt));
+            offset += RECORD_PREFIX_SIZE + length;
+        }
+        segment.position = offset;
+    }
+
+    /**
+     * Значення запису разом із часом його запису.
+     */
+    public static final class StoredValue {
+        private final byte[] value;
+
+        /**
+         * Час запису (у мс від початку епохи).
+         */
+        private final long writtenAt;
+
+        private StoredValue(byte[] value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+
+        public long getWrittenAt() {
+            return writtenAt;
+        }
+    }
+
+    /**
+     * Розташування запису в журналі.
+     */
+    private static final class RecordPointer {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final int keyLength;
+        private final long writtenAt;
+
+        private RecordPointer(Segment segment, int offset, int length, int keyLength, long writtenAt) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.keyLength = keyLength;
+            this.writtenAt = writtenAt;
+        }
+
+        private byte[] readValue() {
+            ByteBuffer in = segment.reader();
+            byte[] value = new byte[length - RECORD_HEADER_SIZE - keyLength];
+            in.position(offset + RECORD_PREFIX_SIZE + RECORD_HEADER_SIZE + keyLength);
+            in.get(value);
+            return value;
+        }
+    }
+
+    /**
+     * Сегмент журналу - файл, відображений у пам'ять.
+     */
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        /**
+         * Копія буфера, позиція якої використовується лише для запису (під
+         * блокуванням сховища).
+         */
+        private final ByteBuffer writer;
+
+        /**
+         * Позиція, з якої дописується наступний запис.
+         */
+        private volatile int position;
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.writer = buffer.duplicate();
+        }
+
+        private static Segment open(Path path, int id, int segmentSize) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = Math.max(channel.size(), segmentSize);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(id, path, channel, buffer);
+        }
+
+        private int capacity() {
+            return buffer.capacity();
+        }
+
+        // окрема копія буфера для кожного читання, оскільки позиція буфера
+        // не є потокобезпечною
+        private ByteBuffer reader() {
+            return buffer.duplicate();
+        }
+
+        private void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.fluffy.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Клас, що виконує асинхронну операцію для кожного елемента списку, при
+ * цьому одночасно виконується не більше вказаної кількості операцій.
+ * Наступна операція запускається лише після завершення однієї з попередніх,
+ * тому кількість незавершених результатів у пам'яті обмежена незалежно від
+ * розміру списку. Результати передаються обробнику в порядку завершення.
+ * @author Сивоконь Вадим
+ */
+public class BoundedFanOut {
+    /**
+     * Запускає операції для всіх елементів списку.
+     * @param items елементи
+     * @param maxConcurrency максимальна кількість операцій, що виконуються
+     *                       одночасно
+     * @param operation операція
+     * @param handler обробник результату кожної операції
+     * @param <T> тип елемента
+     * @param <R> тип результату
+     * @return результат, що завершується після обробки результатів усіх операцій
+     */
+    public static <T, R> CompletableFuture<Void> run(List<T> items, int maxConcurrency,
+                                                     Function<T, CompletableFuture<R>> operation, ResultHandler<R> handler) {
+        return new Run<>(items, operation, handler).start(maxConcurrency);
+    }
+
+    private static final class Run<T, R> {
+        private final List<T> items;
+        private final Function<T, CompletableFuture<R>> operation;
+        private final ResultHandler<R> handler;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /**
+         * Індекс наступного елемента.
+         */
+        private final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * Кількість операцій, що ще не завершилися.
+         */
+        private final AtomicInteger remaining;
+
+        /**
+         * Кількість запитів на запуск наступної операції, що очікують
+         * опрацювання.
+         */
+        private final AtomicInteger pendingStarts = new AtomicInteger();
+
+        private Run(List<T> items, Function<T, CompletableFuture<R>> operation, ResultHandler<R> handler) {
+            this.items = items;
+            this.operation = operation;
+            this.handler = handler;
+            this.remaining = new AtomicInteger(items.size());
+        }
+
+        private CompletableFuture<Void> start(int maxConcurrency) {
+            if (items.isEmpty()) {
+                done.complete(null);
+            }
+            for (int i = 0; i < Math.min(maxConcurrency, items.size()); ++i) {
+                requestStart();
+            }
+            return done;
+        }
+
+        // операції, результат яких вже готовий (наприклад, із кешу),
+        // завершуються під час запуску; запити на запуск наступних операцій
+        // опрацьовуються в циклі потоком, що вже його виконує, замість
+        // рекурсії, тому глибина стеку не залежить від розміру списку
+        private void requestStart() {
+            if (pendingStarts.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                startNext();
+            } while (pendingStarts.decrementAndGet() != 0);
+        }
+
+        private void startNext() {
+            int index = next.getAndIncrement();
+            if (index >= items.size() || done.isDone()) {
+                return;
+            }
+            CompletableFuture<R> result;
+            try {
+                result = operation.apply(items.get(index));
+            } catch (RuntimeException e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            result.whenComplete((value, e) -> {
+                try {
+                    handler.handle(index, value, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                } catch (RuntimeException handlerException) {
+                    done.completeExceptionally(handlerException);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    done.complete(null);
+                } else {
+                    requestStart();
+                }
+            });
+        }
+    }
+
+    /**
+     * Обробник результату операції.
+     * @param <R> тип результату
+     */
+    @FunctionalInterface
+    public interface ResultHandler<R> {
+        /**
+         * Обробляє результат операції.
+         * @param index індекс елемента у списку
+         * @param value результат (null у випадку помилки)
+         * @param error помилка (null у випадку успішного завершення)
+         */
+        void handle(int index, R value, Throwable error);
+    }
+}
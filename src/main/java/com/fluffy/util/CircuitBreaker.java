@@ -0,0 +1,254 @@
+package com.fluffy.util;
+
+import com.fluffy.exceptions.ExternalServiceUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Клас запобіжника звернень до зовнішнього сервісу. Запобіжник враховує
+ * результати останніх звернень (ковзне вікно встановленого розміру) і
+ * розмикається, якщо частка помилок або частка повільних звернень досягла
+ * встановленої межі. Поки запобіжник розімкнений, звернення не виконуються,
+ * а одразу завершуються винятком {@link ExternalServiceUnavailableException},
+ * тому недоступний чи перевантажений сервіс не утримує потоки та з'єднання
+ * додатку.
+ *
+ * Після встановленого часу запобіжник пропускає кілька пробних звернень:
+ * якщо всі вони успішні та не повільні, запобіжник замикається, інакше -
+ * знову розмикається. Результати звернень, розпочатих до зміни стану, не
+ * враховуються.
+ * @author Сивоконь Вадим
+ */
+public class CircuitBreaker {
+    /**
+     * Стан запобіжника.
+     */
+    public enum State {
+        /**
+         * Звернення виконуються.
+         */
+        CLOSED,
+
+        /**
+         * Звернення не виконуються.
+         */
+        OPEN,
+
+        /**
+         * Виконуються лише пробні звернення.
+         */
+        HALF_OPEN
+    }
+
+    private static final byte OUTCOME_FAILURE = 1;
+    private static final byte OUTCOME_SLOW = 2;
+
+    private final String name;
+
+    private final int minCalls;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallNanos;
+
+    private final double slowCallRateThreshold;
+
+    private final long openNanos;
+
+    private final int halfOpenCalls;
+
+    /**
+     * Результати останніх звернень (ознаки OUTCOME_FAILURE, OUTCOME_SLOW).
+     */
+    private final byte[] window;
+
+    private int position;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+
+    /**
+     * Номер поточного стану; збільшується з кожною зміною стану.
+     */
+    private long generation;
+
+    private long openedAt;
+
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    private final LongAdder notPermittedCount = new LongAdder();
+
+    private final LongAdder openCount = new LongAdder();
+
+    /**
+     * Створює замкнений запобіжник.
+     * @param name назва запобіжника (використовується у статистиці)
+     * @param windowSize кількість останніх звернень, що враховуються
+     * @param minCalls мінімальна кількість звернень у вікні, після якої
+     *                 запобіжник може розімкнутися
+     * @param failureRateThreshold частка помилок, за якої запобіжник
+     *                             розмикається
+     * @param slowCallMillis тривалість звернення (у мс), після якої воно
+     *                       вважається повільним
+     * @param slowCallRateThreshold частка повільних звернень, за якої
+     *                              запобіжник розмикається
+     * @param openMillis час (у мс), протягом якого запобіжник залишається
+     *                   розімкненим
+     * @param halfOpenCalls кількість пробних звернень
+     */
+    public CircuitBreaker(String name, int windowSize, int minCalls, double failureRateThreshold,
+                          long slowCallMillis, double slowCallRateThreshold, long openMillis, int halfOpenCalls) {
+        this.name = name;
+        this.window = new byte[windowSize];
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Виконує асинхронне звернення, якщо запобіжник його пропускає.
+     * Результат звернення (успіх чи помилка та тривалість) враховується
+     * після завершення результату.
+     * @param operation звернення
+     * @param <T> тип результату
+     * @return результат звернення або результат, завершений винятком
+     *         {@link ExternalServiceUnavailableException}, якщо звернення не
+     *         виконувалося
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> operation) {
+        long permit = tryAcquire();
+        if (permit < 0) {
+            notPermittedCount.increment();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            result.completeExceptionally(new ExternalServiceUnavailableException("Зовнішній сервіс тимчасово недоступний (" + name + ")"));
+            return result;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException e) {
+            onResult(permit, System.nanoTime() - start, false);
+            throw e;
+        }
+        return result.whenComplete((value, e) -> onResult(permit, System.nanoTime() - start, e == null));
+    }
+
+    // повертає номер стану, у якому дозволене звернення, або -1
+    private synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return -1;
+            }
+            --halfOpenPermits;
+        }
+        return generation;
+    }
+
+    private synchronized void onResult(long permit, long durationNanos, boolean success) {
+        if (permit != generation) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (!success || slow) {
+                open();
+            } else if (++halfOpenSuccesses == halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+
+        byte outcome = (byte) ((success ? 0 : OUTCOME_FAILURE) | (slow ? OUTCOME_SLOW : 0));
+        if (calls == window.length) {
+            byte evicted = window[position];
+            failures -= evicted & OUTCOME_FAILURE;
+            slowCalls -= (evicted & OUTCOME_SLOW) >> 1;
+        } else {
+            ++calls;
+        }
+        window[position] = outcome;
+        position = (position + 1) % window.length;
+        failures += outcome & OUTCOME_FAILURE;
+        slowCalls += (outcome & OUTCOME_SLOW) >> 1;
+
+        if (calls >= minCalls && ((double) failures / calls >= failureRateThreshold
+                || (double) slowCalls / calls >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = System.nanoTime();
+        openCount.increment();
+    }
+
+    // вікно очищується з кожною зміною стану, тому після замикання
+    // запобіжника попередні помилки не враховуються
+    private void transition(State newState) {
+        state = newState;
+        ++generation;
+        position = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Повертає частку помилок серед звернень у вікні.
+     * @return частка помилок (0, якщо звернень немає)
+     */
+    public synchronized double getFailureRate() {
+        return calls > 0 ? (double) failures / calls : 0;
+    }
+
+    /**
+     * Повертає частку повільних звернень у вікні.
+     * @return частка повільних звернень (0, якщо звернень немає)
+     */
+    public synchronized double getSlowCallRate() {
+        return calls > 0 ? (double) slowCalls / calls : 0;
+    }
+
+    /**
+     * Повертає кількість звернень, що не виконувалися через розімкнений
+     * запобіжник.
+     * @return кількість звернень
+     */
+    public long getNotPermittedCount() {
+        return notPermittedCount.sum();
+    }
+
+    /**
+     * Повертає кількість розмикань запобіжника.
+     * @return кількість розмикань
+     */
+    public long getOpenCount() {
+        return openCount.sum();
+    }
+}
@@ -0,0 +1,94 @@
+package com.fluffy.util;
+
+import com.fluffy.exceptions.ServiceOverloadedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Клас, що обмежує кількість операцій, які виконуються одночасно. Операція,
+ * що перевищує межу, не очікує на звільнення місця, а одразу відхиляється,
+ * тому під час перевантаження запити не накопичуються в пам'яті.
+ * @author Сивоконь Вадим
+ */
+public class ConcurrencyLimiter {
+    private final String name;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Створює об'єкт обмежувача.
+     * @param name назва обмежувача (використовується у статистиці)
+     * @param maxConcurrency максимальна кількість операцій, що виконуються
+     *                       одночасно
+     */
+    public ConcurrencyLimiter(String name, int maxConcurrency) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Виконує асинхронну операцію, якщо межу не досягнуто. Місце звільняється
+     * після завершення результату операції.
+     * @param operation операція
+     * @param <T> тип результату
+     * @param <E> тип винятку, що може виникнути під час запуску операції
+     * @return результат операції
+     * @throws ServiceOverloadedException у випадку досягнення межі
+     * @throws E у випадку помилки запуску операції
+     */
+    public <T, E extends Exception> CompletableFuture<T> execute(LimitedOperation<T, E> operation) throws ServiceOverloadedException, E {
+        if (!permits.tryAcquire()) {
+            rejectedCount.increment();
+            throw new ServiceOverloadedException("Перевищено кількість одночасних запитів (" + name + ")");
+        }
+        CompletableFuture<T> result;
+        try {
+            result = operation.start();
+        } catch (Exception e) {
+            permits.release();
+            throw e;
+        }
+        return result.whenComplete((value, e) -> permits.release());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Повертає кількість операцій, що виконуються на даний момент.
+     * @return кількість операцій
+     */
+    public int getInFlight() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Повертає кількість відхилених операцій.
+     * @return кількість операцій
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Асинхронна операція, запуск якої може завершитися винятком.
+     * @param <T> тип результату
+     * @param <E> тип винятку
+     */
+    @FunctionalInterface
+    public interface LimitedOperation<T, E extends Exception> {
+        CompletableFuture<T> start() throws E;
+    }
+}
@@ -0,0 +1,38 @@
+package com.fluffy.util;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Клас політики відхилення задач пулом потоків, що підраховує відхилені
+ * задачі та передає їх опрацювання іншій політиці.
+ * @author Сивоконь Вадим
+ */
+public class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+    private final RejectedExecutionHandler delegate;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Створює об'єкт політики.
+     * @param delegate політика, що опрацьовує відхилені задачі
+     */
+    public CountingRejectedExecutionHandler(RejectedExecutionHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        rejectedCount.increment();
+        delegate.rejectedExecution(r, executor);
+    }
+
+    /**
+     * Повертає кількість відхилених задач.
+     * @return кількість задач
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
@@ -0,0 +1,231 @@
+package com.fluffy.util;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xwpf.usermodel.IBody;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Клас скомпільованого шаблону документа. Шаблон читається та аналізується
+ * один раз: його вміст зберігається в пам'яті у вигляді архіву без стиснення
+ * (тому створення кожного нового документа не потребує ні звернень до
+ * файлової системи, ні розпакування), а розташування абзаців із полями виду
+ * ${поле} та таблиці рейтингів індексуються, тому під час заповнення
+ * документа не потрібно обходити його повністю.
+ *
+ * Розташування елемента задається шляхом - послідовністю індексів: індекс
+ * елемента в тілі документа, а для елементів таблиць - додатково індекси
+ * рядка, комірки та елемента в тілі комірки.
+ * @author Сивоконь Вадим
+ */
+public class DocumentTemplate {
+    private static final String FIELD_BEGINS_WITH = "${";
+
+    /**
+     * Вміст шаблону - архів без стиснення.
+     */
+    private final byte[] data;
+
+    /**
+     * Шляхи до абзаців, що містять поля.
+     */
+    private final List<int[]> fieldParagraphPaths;
+
+    /**
+     * Шлях до таблиці рейтингів (null, якщо таблиця відсутня).
+     */
+    private final int[] ratingsTablePath;
+
+    /**
+     * Версія шаблону - хеш його вмісту (шістнадцятковий).
+     */
+    private final String version;
+
+    private DocumentTemplate(byte[] data, List<int[]> fieldParagraphPaths, int[] ratingsTablePath) {
+        this.data = data;
+        this.fieldParagraphPaths = fieldParagraphPaths;
+        this.ratingsTablePath = ratingsTablePath;
+        this.version = DigestUtils.md5DigestAsHex(data);
+    }
+
+    /**
+     * Компілює шаблон: читає його вміст та індексує розташування полів і
+     * таблиці рейтингів.
+     * @param in потік із вмістом шаблону (docx)
+     * @param ratingsTableContent текст, за яким визначається таблиця рейтингів
+     * @return скомпільований шаблон
+     * @throws IOException у випадку помилки читання шаблону
+     */
+    public static DocumentTemplate compile(InputStream in, String ratingsTableContent) throws IOException {
+        byte[] data = repackStored(in);
+        try (XWPFDocument document = open(data)) {
+            List<int[]> fieldParagraphPaths = new ArrayList<>();
+            List<int[]> tablePaths = new ArrayList<>();
+            indexBody(document, new int[0], fieldParagraphPaths, tablePaths);
+
+            int[] ratingsTablePath = null;
+            XWPFTable ratingsTable = XWPFDocumentManipulator.getTableWithContent(document, ratingsTableContent);
+            for (int[] path : tablePaths) {
+                if (resolve(document, path) == ratingsTable) {
+                    ratingsTablePath = path;
+                    break;
+                }
+            }
+            return new DocumentTemplate(data, Collections.unmodifiableList(fieldParagraphPaths), ratingsTablePath);
+        }
+    }
+
+    /**
+     * Створює новий документ на основі шаблону.
+     * @return документ, що відповідає шаблону
+     * @throws IOException у випадку некоректного вмісту шаблону
+     */
+    public Instance newInstance() throws IOException {
+        XWPFDocument document = open(data);
+        List<XWPFParagraph> fieldParagraphs = new ArrayList<>(fieldParagraphPaths.size());
+        for (int[] path : fieldParagraphPaths) {
+            fieldParagraphs.add((XWPFParagraph) resolve(document, path));
+        }
+        XWPFTable ratingsTable = ratingsTablePath != null ? (XWPFTable) resolve(document, ratingsTablePath) : null;
+        return new Instance(document, fieldParagraphs, ratingsTable);
+    }
+
+    /**
+     * Повертає кількість проіндексованих абзаців із полями.
+     * @return кількість абзаців
+     */
+    public int getFieldParagraphCount() {
+        return fieldParagraphPaths.size();
+    }
+
+    /**
+     * Повертає версію шаблону - хеш його вмісту. Зміна шаблону змінює
+     * версію, а отже й валідатори створених на його основі документів.
+     * @return версія шаблону
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    private static XWPFDocument open(byte[] data) throws IOException {
+        try {
+            return new XWPFDocument(OPCPackage.open(new ByteArrayInputStream(data)));
+        } catch (InvalidFormatException e) {
+            throw new IOException("Некоректний формат шаблону документа", e);
+        }
+    }
+
+    // перепакування архіву без стиснення, оскільки документ створюється
+    // із шаблону для кожного запиту, а розпакування є зайвою роботою
+    private static byte[] repackStored(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipInputStream zin = new ZipInputStream(in); ZipOutputStream zout = new ZipOutputStream(out)) {
+            ZipEntry entry;
+            CRC32 crc = new CRC32();
+            while ((entry = zin.getNextEntry()) != null) {
+                byte[] content = IOUtils.toByteArray(zin);
+                crc.reset();
+                crc.update(content, 0, content.length);
+
+                ZipEntry stored = new ZipEntry(entry.getName());
+                stored.setMethod(ZipEntry.STORED);
+                stored.setSize(content.length);
+                stored.setCompressedSize(content.length);
+                stored.setCrc(crc.getValue());
+                zout.putNextEntry(stored);
+                zout.write(content);
+                zout.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void indexBody(IBody body, int[] path, List<int[]> fieldParagraphPaths, List<int[]> tablePaths) {
+        List<IBodyElement> elements = body.getBodyElements();
+        for (int i = 0; i < elements.size(); ++i) {
+            IBodyElement element = elements.get(i);
+            int[] elementPath = append(path, i);
+            if (element instanceof XWPFParagraph) {
+                String text = ((XWPFParagraph) element).getText();
+                if (text != null && text.contains(FIELD_BEGINS_WITH)) {
+                    fieldParagraphPaths.add(elementPath);
+                }
+            } else if (element instanceof XWPFTable) {
+                tablePaths.add(elementPath);
+                List<XWPFTableRow> rows = ((XWPFTable) element).getRows();
+                for (int r = 0; r < rows.size(); ++r) {
+                    List<XWPFTableCell> cells = rows.get(r).getTableCells();
+                    for (int c = 0; c < cells.size(); ++c) {
+                        indexBody(cells.get(c), append(append(elementPath, r), c), fieldParagraphPaths, tablePaths);
+                    }
+                }
+            }
+        }
+    }
+
+    private static IBodyElement resolve(XWPFDocument document, int[] path) {
+        IBody body = document;
+        IBodyElement element = null;
+        for (int i = 0; i < path.length; i += 3) {
+            element = body.getBodyElements().get(path[i]);
+            if (i + 2 < path.length) {
+                body = ((XWPFTable) element).getRow(path[i + 1]).getCell(path[i + 2]);
+            }
+        }
+        return element;
+    }
+
+    private static int[] append(int[] path, int index) {
+        int[] result = Arrays.copyOf(path, path.length + 1);
+        result[path.length] = index;
+        return result;
+    }
+
+    /**
+     * Документ, створений на основі шаблону, разом із посиланнями на його
+     * проіндексовані елементи.
+     */
+    public static final class Instance {
+        private final XWPFDocument document;
+        private final List<XWPFParagraph> fieldParagraphs;
+        private final XWPFTable ratingsTable;
+
+        private Instance(XWPFDocument document, List<XWPFParagraph> fieldParagraphs, XWPFTable ratingsTable) {
+            this.document = document;
+            this.fieldParagraphs = fieldParagraphs;
+            this.ratingsTable = ratingsTable;
+        }
+
+        public XWPFDocument getDocument() {
+            return document;
+        }
+
+        public List<XWPFParagraph> getFieldParagraphs() {
+            return fieldParagraphs;
+        }
+
+        public XWPFTable getRatingsTable() {
+            return ratingsTable;
+        }
+    }
+}
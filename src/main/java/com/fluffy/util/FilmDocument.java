@@ -0,0 +1,46 @@
+package com.fluffy.util;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Документ з інформацією про фільм, готовий до запису (docx). Залежно від
+ * способу створення документ або вже побудований повністю (об'єктна модель
+ * POI), або створюється безпосередньо під час запису.
+ * @author Сивоконь Вадим
+ */
+public interface FilmDocument extends Closeable {
+    /**
+     * Записує документ у потік. Потік не закривається.
+     * @param out потік
+     * @throws IOException у випадку помилки запису
+     */
+    void write(OutputStream out) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+
+    }
+
+    /**
+     * Повертає документ, побудований за допомогою POI.
+     * @param document документ POI
+     * @return документ, готовий до запису
+     */
+    static FilmDocument of(XWPFDocument document) {
+        return new FilmDocument() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                document.write(out);
+            }
+
+            @Override
+            public void close() throws IOException {
+                document.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,189 @@
+package com.fluffy.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fluffy.dtos.FilmDTO;
+import com.fluffy.dtos.FilmSearchDTO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Клас, що перетворює відповідь джерела даних (JSON) на дані про фільм.
+ * Відповідь читається послідовно, лексема за лексемою, безпосередньо з
+ * байтів, а значення полів одразу записуються в FilmDTO, тому проміжне
+ * дерево JSON не створюється. Назви полів канонізуються аналізатором, тому
+ * для них не створюються нові рядки.
+ *
+ * Значення відсутніх полів залишаються невизначеними (null). Невідомі поля
+ * пропускаються.
+ * @author Сивоконь Вадим
+ */
+public class FilmParser {
+    private static final String RESPONSE_FALSE = "False";
+
+    private static final String RATING_SOURCE = "Source";
+    private static final String RATING_VALUE = "Value";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Повертає дані про фільм, що містить відповідь джерела даних.
+     * @param json відповідь джерела даних у кодуванні UTF-8
+     * @return дані про фільм
+     * @throws UncheckedIOException у випадку некоректного JSON
+     */
+    public static FilmDTO parse(byte[] json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parse(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Некоректна відповідь джерела даних", e);
+        }
+    }
+
+    /**
+     * Повертає сторінку результатів пошуку, що містить відповідь джерела
+     * даних. Кожен результат містить лише назву, рік випуску, IMDb ID, тип
+     * та постер.
+     * @param json відповідь джерела даних у кодуванні UTF-8
+     * @return сторінка результатів пошуку
+     * @throws UncheckedIOException у випадку некоректного JSON
+     */
+    public static FilmSearchDTO parseSearch(byte[] json) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            FilmSearchDTO search = new FilmSearchDTO();
+            List<FilmDTO> results = new ArrayList<>();
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (name) {
+                    case "Search":
+                        if (token == JsonToken.START_ARRAY) {
+                            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                                if (token == JsonToken.START_OBJECT) {
+                                    results.add(parseObject(parser));
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    case "totalResults": search.setTotalResults(value(parser, token)); break;
+                    case "Response": search.setResponse(value(parser, token)); break;
+                    case "Error": search.setError(value(parser, token)); break;
+                    default: parser.skipChildren();
+                }
+            }
+            search.setSearch(results);
+            return search;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Некоректна відповідь джерела даних", e);
+        }
+    }
+
+    private static FilmDTO parse(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        return parseObject(parser);
+    }
+
+    // поля об'єкта фільму; поточна лексема - початок об'єкта
+    private static FilmDTO parseObject(JsonParser parser) throws IOException {
+        FilmDTO film = new FilmDTO();
+        String name;
+        while ((name = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "Title": film.setTitle(value(parser, token)); break;
+                case "Year": film.setYear(value(parser, token)); break;
+                case "Rated": film.setRated(value(parser, token)); break;
+                case "Released": film.setReleased(value(parser, token)); break;
+                case "Runtime": film.setRuntime(value(parser, token)); break;
+                case "Genre": film.setGenre(value(parser, token)); break;
+                case "Director": film.setDirector(value(parser, token)); break;
+                case "Writer": film.setWriter(value(parser, token)); break;
+                case "Actors": film.setActors(value(parser, token)); break;
+                case "Plot": film.setPlot(value(parser, token)); break;
+                case "Language": film.setLanguage(value(parser, token)); break;
+                case "Country": film.setCountry(value(parser, token)); break;
+                case "Awards": film.setAwards(value(parser, token)); break;
+                case "Poster": film.setPoster(value(parser, token)); break;
+                case "Ratings": film.setRatings(ratings(parser, token)); break;
+                case "Metascore": film.setMetascore(value(parser, token)); break;
+                case "imdbRating": film.setImdbRating(value(parser, token)); break;
+                case "imdbVotes": film.setImdbVotes(value(parser, token)); break;
+                case "imdbID": film.setImdbID(value(parser, token)); break;
+                case "Type": film.setType(value(parser, token)); break;
+                case "DVD": film.setDvd(value(parser, token)); break;
+                case "BoxOffice": film.setBoxOffice(value(parser, token)); break;
+                case "Production": film.setProduction(value(parser, token)); break;
+                case "Website": film.setWebsite(value(parser, token)); break;
+                case "Response": film.setResponse(value(parser, token)); break;
+                case "Error": film.setError(value(parser, token)); break;
+                default: parser.skipChildren();
+            }
+        }
+
+        if (RESPONSE_FALSE.equals(film.getResponse())) {
+            // відповідь про помилку містить лише ознаку та опис помилки
+            FilmDTO error = new FilmDTO();
+            error.setResponse(film.getResponse());
+            error.setError(film.getError());
+            return error;
+        }
+        if (film.getRatings() == null) {
+            film.setRatings(new HashMap<>());
+        }
+        return film;
+    }
+
+    // значення поля: рядок, число чи логічне значення у вигляді тексту;
+    // вкладені об'єкти та масиви пропускаються
+    private static String value(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    private static Map<String, Map<String, String>> ratings(JsonParser parser, JsonToken token) throws IOException {
+        Map<String, Map<String, String>> ratings = new HashMap<>();
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return ratings;
+        }
+        int index = 0;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            Map<String, String> rating = new HashMap<>(4);
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                JsonToken valueToken = parser.nextToken();
+                if (RATING_SOURCE.equals(name) || RATING_VALUE.equals(name)) {
+                    rating.put(name, value(parser, valueToken));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            ratings.put(String.valueOf(index++), rating);
+        }
+        return ratings;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Очікувалася лексема " + expected + ", отримано " + actual);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.fluffy.util;
+
+import com.fluffy.cache.TitleIndex;
+import com.fluffy.dtos.FilmDTO;
+import com.fluffy.dtos.FilmSearchDTO;
+import org.json.JSONObject;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Клас, що формує представлення даних про фільм у форматах JSON та XML. Назви
+ * полів та структура документів відповідають відповідям джерела даних, тому
+ * для клієнта не має значення, чи відповідь була сформована локально.
+ * Поля, значення яких невідомі (null), не виводяться.
+ * @author Сивоконь Вадим
+ */
+public class FilmSerializer {
+    private static final String RESPONSE_FALSE = "False";
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * Повертає представлення фільму у форматі JSON.
+     * @param film дані про фільм
+     * @return JSON
+     */
+    public static String toJson(FilmDTO film) {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append('{');
+        if (RESPONSE_FALSE.equals(film.getResponse())) {
+            appendJsonField(sb, "Response", film.getResponse());
+            appendJsonField(sb, "Error", film.getError());
+            return sb.append('}').toString();
+        }
+
+        appendJsonField(sb, "Title", film.getTitle());
+        appendJsonField(sb, "Year", film.getYear());
+        appendJsonField(sb, "Rated", film.getRated());
+        appendJsonField(sb, "Released", film.getReleased());
+        appendJsonField(sb, "Runtime", film.getRuntime());
+        appendJsonField(sb, "Genre", film.getGenre());
+        appendJsonField(sb, "Director", film.getDirector());
+        appendJsonField(sb, "Writer", film.getWriter());
+        appendJsonField(sb, "Actors", film.getActors());
+        appendJsonField(sb, "Plot", film.getPlot());
+        appendJsonField(sb, "Language", film.getLanguage());
+        appendJsonField(sb, "Country", film.getCountry());
+        appendJsonField(sb, "Awards", film.getAwards());
+        appendJsonField(sb, "Poster", film.getPoster());
+
+        Map<String, Map<String, String>> ratings = film.getRatings();
+        if (ratings != null) {
+            appendJsonName(sb, "Ratings");
+            sb.append('[');
+            int size = ratings.size();
+            for (int index = 0; index < size; ++index) {
+                Map<String, String> rating = ratings.get(String.valueOf(index));
+                if (index > 0) {
+                    sb.append(',');
+                }
+                sb.append('{');
+                appendJsonField(sb, "Source", rating.get("Source"));
+                appendJsonField(sb, "Value", rating.get("Value"));
+                sb.append('}');
+            }
+            sb.append(']');
+        }
+
+        appendJsonField(sb, "Metascore", film.getMetascore());
+        appendJsonField(sb, "imdbRating", film.getImdbRating());
+        appendJsonField(sb, "imdbVotes", film.getImdbVotes());
+        appendJsonField(sb, "imdbID", film.getImdbID());
+        appendJsonField(sb, "Type", film.getType());
+        appendJsonField(sb, "DVD", film.getDvd());
+        appendJsonField(sb, "BoxOffice", film.getBoxOffice());
+        appendJsonField(sb, "Production", film.getProduction());
+        appendJsonField(sb, "Website", film.getWebsite());
+        appendJsonField(sb, "Response", film.getResponse());
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Повертає представлення сторінки результатів пошуку у форматі JSON.
+     * Кожен результат містить назву, рік випуску, IMDb ID, тип та постер.
+     * @param search сторінка результатів пошуку
+     * @return JSON
+     */
+    public static String toJson(FilmSearchDTO search) {
+        StringBuilder sb = new StringBuilder(256 + 256 * search.getSearch().size());
+        sb.append('{');
+        if (RESPONSE_FALSE.equals(search.getResponse())) {
+            appendJsonField(sb, "Response", search.getResponse());
+            appendJsonField(sb, "Error", search.getError());
+            return sb.append('}').toString();
+        }
+
+        appendJsonName(sb, "Search");
+        sb.append('[');
+        for (FilmDTO film : search.getSearch()) {
+            if (sb.charAt(sb.length() - 1) != '[') {
+                sb.append(',');
+            }
+            sb.append('{');
+            appendJsonField(sb, "Title", film.getTitle());
+            appendJsonField(sb, "Year", film.getYear());
+            appendJsonField(sb, "imdbID", film.getImdbID());
+            appendJsonField(sb, "Type", film.getType());
+            appendJsonField(sb, "Poster", film.getPoster());
+            sb.append('}');
+        }
+        sb.append(']');
+        appendJsonField(sb, "totalResults", search.getTotalResults());
+        appendJsonField(sb, "Response", search.getResponse());
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Повертає представлення підказок назв фільмів у форматі JSON (масив).
+     * @param suggestions підказки
+     * @return JSON
+     */
+    public static String toJson(List<TitleIndex.Suggestion> suggestions) {
+        StringBuilder sb = new StringBuilder(16 + 128 * suggestions.size());
+        sb.append('[');
+        for (TitleIndex.Suggestion suggestion : suggestions) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append('{');
+            appendJsonField(sb, "Title", suggestion.getTitle());
+            appendJsonField(sb, "Year", suggestion.getYear());
+            appendJsonField(sb, "imdbID", suggestion.getImdbID());
+            appendJsonField(sb, "Type", suggestion.getType());
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Повертає представлення фільму у форматі XML.
+     * @param film дані про фільм
+     * @return XML
+     */
+    public static String toXml(FilmDTO film) {
+        StringWriter out = new StringWriter(2048);
+        try {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out);
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("root");
+            writer.writeAttribute("response", film.getResponse() != null ? film.getResponse() : "True");
+            if (RESPONSE_FALSE.equals(film.getResponse())) {
+                writer.writeStartElement("error");
+                writer.writeCharacters(film.getError() != null ? film.getError() : "");
+                writer.writeEndElement();
+            } else {
+                writer.writeEmptyElement("movie");
+                writeXmlAttribute(writer, "title", film.getTitle());
+                writeXmlAttribute(writer, "year", film.getYear());
+                writeXmlAttribute(writer, "rated", film.getRated());
+                writeXmlAttribute(writer, "released", film.getReleased());
+                writeXmlAttribute(writer, "runtime", film.getRuntime());
+                writeXmlAttribute(writer, "genre", film.getGenre());
+                writeXmlAttribute(writer, "director", film.getDirector());
+                writeXmlAttribute(writer, "writer", film.getWriter());
+                writeXmlAttribute(writer, "actors", film.getActors());
+                writeXmlAttribute(writer, "plot", film.getPlot());
+                writeXmlAttribute(writer, "language", film.getLanguage());
+                writeXmlAttribute(writer, "country", film.getCountry());
+                writeXmlAttribute(writer, "awards", film.getAwards());
+                writeXmlAttribute(writer, "poster", film.getPoster());
+                writeXmlAttribute(writer, "metascore", film.getMetascore());
+                writeXmlAttribute(writer, "imdbRating", film.getImdbRating());
+                writeXmlAttribute(writer, "imdbVotes", film.getImdbVotes());
+                writeXmlAttribute(writer, "imdbID", film.getImdbID());
+                writeXmlAttribute(writer, "type", film.getType());
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            // запис здійснюється в пам'ять, тому помилка можлива лише у
+            // випадку некоректного використання XMLStreamWriter
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    private static void appendJsonName(StringBuilder sb, String name) {
+        // кома потрібна перед кожним полем, окрім першого в об'єкті
+        char last = sb.charAt(sb.length() - 1);
+        if (last != '{' && last != '[') {
+            sb.append(',');
+        }
+        sb.append(JSONObject.quote(name)).append(':');
+    }
+
+    private static void appendJsonField(StringBuilder sb, String name, String value) {
+        if (value != null) {
+            appendJsonName(sb, name);
+            sb.append(JSONObject.quote(value));
+        }
+    }
+
+    private static void writeXmlAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (value != null) {
+            writer.writeAttribute(name, value);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.fluffy.util;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Клас неблокуючого HTTP-клієнта. Запити виконуються потоками вводу-виводу
+ * клієнта, тому жоден потік не очікує на відповідь сервера: результат
+ * повертається у вигляді CompletableFuture, що завершується після отримання
+ * відповіді повністю.
+ *
+ * Оскільки продовження CompletableFuture без явно вказаного пулу потоків
+ * виконуються в потоці, що його завершив, ресурсоємну обробку результату
+ * слід виконувати в окремому пулі потоків, аби не затримувати потоки
+ * вводу-виводу.
+ * @author Сивоконь Вадим
+ */
+public class NonBlockingHttpClient implements Closeable {
+    private final CloseableHttpAsyncClient client;
+
+    private final PoolingNHttpClientConnectionManager connectionManager;
+
+    /**
+     * Час, після якого невикористовуване з'єднання закривається (у мс).
+     */
+    private final long idleTimeout;
+
+    /**
+     * Створює об'єкт клієнта та запускає його.
+     * @param client HTTP-клієнт
+     * @param connectionManager пул з'єднань, що використовується клієнтом
+     * @param idleTimeout час, після якого невикористовуване з'єднання
+     *                    закривається (у мс)
+     */
+    public NonBlockingHttpClient(CloseableHttpAsyncClient client, PoolingNHttpClientConnectionManager connectionManager, long idleTimeout) {
+        this.client = client;
+        this.connectionManager = connectionManager;
+        this.idleTimeout = idleTimeout;
+        client.start();
+    }
+
+    /**
+     * Виконує GET-запит та повертає тіло відповіді у вигляді рядка. Якщо
+     * кодування не вказане сервером, використовується UTF-8.
+     * @param url URL запиту
+     * @return тіло відповіді
+     */
+    public CompletableFuture<String> getForString(String url) {
+        return get(url, entity -> EntityUtils.toString(entity, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Виконує GET-запит та повертає тіло відповіді у вигляді масиву байтів.
+     * @param url URL запиту
+     * @return тіло відповіді
+     */
+    public CompletableFuture<byte[]> getForBytes(String url) {
+        return get(url, EntityUtils::toByteArray);
+    }
+
+    // тіло відповіді перетворюється в потоці вводу-виводу, що завершив
+    // запит, а скасування результату перериває запит (наприклад, спробу,
+    // що програла дубльованому запиту)
+    private <T> CompletableFuture<T> get(String url, EntityReader<T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        HttpGet request;
+        try {
+            request = new HttpGet(url);
+        } catch (IllegalArgumentException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        Future<HttpResponse> response = client.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                int status = response.getStatusLine().getStatusCode();
+                if (status < 200 || status >= 300) {
+                    result.completeExceptionally(new IOException("Сервер повернув статус " + status + " у відповідь на запит " + url));
+                } else {
+                    // тіло відповіді вже повністю отримане та збережене в пам'яті
+                    try {
+                        result.complete(reader.read(response.getEntity()));
+                    } catch (IOException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                response.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface EntityReader<T> {
+        T read(HttpEntity entity) throws IOException;
+    }
+
+    /**
+     * Закриває з'єднання, термін утримання яких вичерпано, а також ті, що
+     * не використовувалися довше встановленого часу.
+     */
+    public void evictIdleConnections() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+}
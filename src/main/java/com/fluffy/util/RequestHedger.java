@@ -0,0 +1,196 @@
+package com.fluffy.util;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Клас, що дублює повільні запити до зовнішнього сервісу (hedged requests):
+ * якщо відповідь на запит не отримана протягом часу, що відповідає
+ * встановленому перцентилю тривалості останніх запитів (наприклад, p95),
+ * виконується друга спроба, і результатом стає відповідь, отримана першою.
+ * Тому поодинокі затримки окремих з'єднань чи серверів не потрапляють у
+ * хвіст розподілу тривалості запитів, а додаткове навантаження на сервіс
+ * обмежується часткою запитів, повільніших за перцентиль.
+ *
+ * Дублюються лише ідемпотентні запити (отримання даних). Помилка першої
+ * спроби не призводить до другої: результат завершується помилкою, якщо
+ * жодна зі спроб, що вже виконуються, не завершилася успішно. Після
+ * завершення результату спроба, що ще виконується, скасовується (запит
+ * неблокуючого HTTP-клієнта при цьому переривається), тому друга спроба не
+ * утримує з'єднання довше, ніж потрібно. Поки не накопичено достатньо
+ * вимірювань тривалості, запити не дублюються.
+ * @author Сивоконь Вадим
+ */
+public class RequestHedger {
+    /**
+     * Кількість вимірювань, після якої затримка другої спроби обчислюється
+     * повторно.
+     */
+    private static final int DELAY_UPDATE_INTERVAL = 32;
+
+    private final String name;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final boolean enabled;
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final int minSamples;
+
+    /**
+     * Тривалості останніх успішних спроб (у нс).
+     */
+    private final long[] samples;
+
+    private int position;
+
+    private long sampleCount;
+
+    /**
+     * Затримка другої спроби (у нс) або -1, якщо вимірювань недостатньо.
+     */
+    private volatile long delayNanos = -1;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder hedgeCount = new LongAdder();
+
+    private final LongAdder hedgeWinCount = new LongAdder();
+
+    /**
+     * Створює об'єкт для дублювання запитів.
+     * @param name назва (використовується у статистиці)
+     * @param scheduler планувальник других спроб
+     * @param enabled чи дублюються запити (інакше лише виконуються)
+     * @param percentile перцентиль тривалості запитів, після якого
+     *                   виконується друга спроба (0..1)
+     * @param minDelayMillis мінімальна затримка другої спроби (у мс)
+     * @param windowSize кількість останніх вимірювань, що враховуються
+     * @param minSamples кількість вимірювань, після якої запити дублюються
+     */
+    public RequestHedger(String name, ScheduledExecutorService scheduler, boolean enabled, double percentile,
+                         long minDelayMillis, int windowSize, int minSamples) {
+        this.name = name;
+        this.scheduler = scheduler;
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelayMillis * 1_000_000L;
+        this.samples = new long[windowSize];
+        this.minSamples = Math.max(1, Math.min(minSamples, windowSize));
+    }
+
+    /**
+     * Виконує запит, за потреби запускаючи другу спробу.
+     * @param attempt спроба запиту; викликається для кожної спроби
+     * @param <T> тип результату
+     * @return результат спроби, що першою завершилася успішно
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> attempt) {
+        if (!enabled) {
+            return attempt.get();
+        }
+        requestCount.increment();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        CompletableFuture<T> first = start(attempt, result, pending, false);
+        result.whenComplete((value, e) -> first.cancel(true));
+
+        long delay = delayNanos;
+        if (delay >= 0 && !result.isDone()) {
+            ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+                if (!result.isDone()) {
+                    pending.incrementAndGet();
+                    hedgeCount.increment();
+                    CompletableFuture<T> second = start(attempt, result, pending, true);
+                    result.whenComplete((value, e) -> second.cancel(true));
+                }
+            }, delay, TimeUnit.NANOSECONDS);
+            result.whenComplete((value, e) -> hedge.cancel(false));
+        }
+        return result;
+    }
+
+    private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> attempt, CompletableFuture<T> result, AtomicInteger pending, boolean hedge) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                record(System.nanoTime() - start);
+                if (result.complete(value) && hedge) {
+                    hedgeWinCount.increment();
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // видимість у межах пакета - для тестів обчислення затримки
+    void record(long durationNanos) {
+        synchronized (samples) {
+            samples[position] = durationNanos;
+            position = (position + 1) % samples.length;
+            ++sampleCount;
+            if (sampleCount >= minSamples && (sampleCount == minSamples || sampleCount % DELAY_UPDATE_INTERVAL == 0)) {
+                int count = (int) Math.min(sampleCount, samples.length);
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int index = Math.max(0, (int) Math.ceil(percentile * count) - 1);
+                delayNanos = Math.max(minDelayNanos, sorted[index]);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Повертає поточну затримку другої спроби.
+     * @return затримка (у мс) або -1, якщо запити не дублюються
+     */
+    public double getDelayMillis() {
+        long delay = delayNanos;
+        return enabled && delay >= 0 ? delay / 1_000_000.0 : -1;
+    }
+
+    /**
+     * Повертає кількість запитів.
+     * @return кількість запитів
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * Повертає кількість других спроб.
+     * @return кількість спроб
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * Повертає кількість запитів, результатом яких стала друга спроба.
+     * @return кількість запитів
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+}
@@ -44,6 +44,8 @@ public class RequestParamMapper {
         params.put(env.getProperty("application.api.param.plot"), env.getProperty("application.data-source.api.param.plot"));
         params.put(env.getProperty("application.api.param.id"), env.getProperty("application.data-source.api.param.id"));
         params.put(env.getProperty("application.api.param.format"), env.getProperty("application.data-source.api.param.format"));
+        params.put(env.getProperty("application.api.param.type"), env.getProperty("application.data-source.api.param.type"));
+        params.put(env.getProperty("application.api.param.page"), env.getProperty("application.data-source.api.param.page"));
 
         values = new HashMap<>();
         Map<String, String> currentMap = new HashMap<>();
@@ -56,6 +58,12 @@ public class RequestParamMapper {
         currentMap.put("json", "json");
         currentMap.put("docx", ""); // передачається лише нашим додатком
         values.put(env.getProperty("application.api.param.format"), currentMap);
+
+        currentMap = new HashMap<>();
+        currentMap.put("movie", "movie");
+        currentMap.put("series", "series");
+        currentMap.put("episode", "episode");
+        values.put(env.getProperty("application.api.param.type"), currentMap);
     }
 
     /**
@@ -0,0 +1,67 @@
+package com.fluffy.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Клас, що об'єднує одночасні однакові операції: поки операція для певного
+ * ключа виконується, усі інші виклики з тим самим ключем отримують результат
+ * тієї самої операції замість запуску нової. Після завершення операції ключ
+ * звільняється, тому наступний виклик запустить операцію знову.
+ * @param <K> тип ключа
+ * @param <V> тип результату
+ * @author Сивоконь Вадим
+ */
+public class SingleFlight<K, V> {
+    /**
+     * Операції, що виконуються на даний момент.
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Повертає результат операції для вказаного ключа, запускаючи її лише у
+     * випадку, якщо для цього ключа немає операції, що вже виконується.
+     * @param key ключ операції
+     * @param operation операція
+     * @return результат операції
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> operation) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing == null) {
+            CompletableFuture<V> result;
+            try {
+                result = operation.get();
+            } catch (RuntimeException e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            result.whenComplete((value, e) -> {
+                // ключ звільняється до завершення спільного результату, аби
+                // виклики, що прийдуть після нього, не отримали вже застарілу
+                // операцію
+                inFlight.remove(key, promise);
+                if (e != null) {
+                    promise.completeExceptionally(e);
+                } else {
+                    promise.complete(value);
+                }
+            });
+            existing = promise;
+        }
+        // кожен виклик отримує власну залежну копію, тому скасування чи
+        // завершення її одним викликом не вплине на решту
+        return existing.thenApply(Function.identity());
+    }
+
+    /**
+     * Повертає кількість операцій, що виконуються на даний момент.
+     * @return кількість операцій
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
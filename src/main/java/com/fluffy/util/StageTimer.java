@@ -0,0 +1,135 @@
+package com.fluffy.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Клас, що вимірює тривалість етапів опрацювання запитів (отримання даних від
+ * джерела даних, розбір відповіді, завантаження постера, створення документа
+ * тощо). Тривалість кожного етапу публікується як таймер film.stage з тегами
+ * stage (назва етапу) та outcome (success або error), тому розподіл часу
+ * запиту між етапами та хвости розподілу тривалості кожного етапу видно
+ * окремо.
+ *
+ * Асинхронний етап вимірюється від запуску операції до завершення її
+ * результату.
+ * @author Сивоконь Вадим
+ */
+public class StageTimer {
+    /**
+     * Назва таймера етапів.
+     */
+    public static final String METRIC_NAME = "film.stage";
+
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry registry;
+
+    /**
+     * Таймери успішних етапів за назвою етапу.
+     */
+    private final ConcurrentMap<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Таймери етапів, що завершилися помилкою, за назвою етапу.
+     */
+    private final ConcurrentMap<String, Timer> errorTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Створює об'єкт для вимірювання тривалості етапів.
+     * @param registry реєстр метрик
+     */
+    public StageTimer(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Виконує етап та вимірює його тривалість.
+     * @param stage назва етапу
+     * @param operation операція етапу
+     * @param <T> тип результату
+     * @return результат операції
+     */
+    public <T> T record(String stage, Supplier<T> operation) {
+        long start = registry.config().clock().monotonicTime();
+        boolean success = false;
+        try {
+            T result = operation.get();
+            success = true;
+            return result;
+        } finally {
+            stop(stage, start, success);
+        }
+    }
+
+    /**
+     * Запускає асинхронний етап та вимірює його тривалість до завершення
+     * результату.
+     * @param stage назва етапу
+     * @param operation операція етапу
+     * @param <T> тип результату
+     * @return результат операції
+     */
+    public <T> CompletableFuture<T> recordAsync(String stage, Supplier<CompletableFuture<T>> operation) {
+        long start = registry.config().clock().monotonicTime();
+        CompletableFuture<T> result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException e) {
+            stop(stage, start, false);
+            throw e;
+        }
+        result.whenComplete((value, e) -> stop(stage, start, e == null));
+        return result;
+    }
+
+    /**
+     * Починає вимірювання етапу, код якого не можна передати як операцію
+     * (наприклад, через перевірювані виключення). Вимірювання, що не було
+     * завершене, не враховується.
+     * @return вимірювання
+     */
+    public Sample start() {
+        return new Sample(registry.config().clock().monotonicTime());
+    }
+
+    private void stop(String stage, long start, boolean success) {
+        long duration = registry.config().clock().monotonicTime() - start;
+        ConcurrentMap<String, Timer> timers = success ? successTimers : errorTimers;
+        Timer timer = timers.get(stage);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(stage, name -> Timer.builder(METRIC_NAME)
+                    .description("Тривалість етапу опрацювання запиту")
+                    .tag("stage", name)
+                    .tag("outcome", success ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+                    .register(registry));
+        }
+        timer.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Вимірювання етапу, що розпочалося.
+     */
+    public final class Sample {
+        private final long start;
+
+        private Sample(long start) {
+            this.start = start;
+        }
+
+        /**
+         * Завершує вимірювання успішного етапу.
+         * @param stage назва етапу
+         */
+        public void stop(String stage) {
+            StageTimer.this.stop(stage, start, true);
+        }
+    }
+}
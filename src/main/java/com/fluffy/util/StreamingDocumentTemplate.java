@@ -0,0 +1,774 @@
+package com.fluffy.util;
+
+import com.fluffy.dtos.ImageDTO;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.util.StreamUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Клас шаблону документа для потокового створення документів без об'єктної
+ * моделі POI. Шаблон аналізується один раз: word/document.xml розбивається
+ * на незмінні фрагменти (вже закодовані в UTF-8) та місця вставки - текст
+ * фрагментів із полями виду ${поле}, рядки таблиці рейтингів та постер.
+ * Документ записується безпосередньо в потік відповіді: незмінні частини
+ * архіву та фрагменти копіюються, а вставки формуються під час запису, тому
+ * пам'ять, що потребує створення документа, не залежить від розміру шаблону.
+ *
+ * Результат відповідає документу, що створюється за допомогою POI (див.
+ * {@link DocumentTemplate}): поле переноситься у фрагмент тексту, з якого
+ * воно починається; рядки рейтингів створюються з останнього рядка таблиці
+ * рейтингів, абзаци комірок якого замінюються текстом; постер вставляється
+ * у фрагмент із полем ${poster}, а зображення додається до пакета разом із
+ * відповідним зв'язком та типом вмісту.
+ * @author Сивоконь Вадим
+ */
+public class StreamingDocumentTemplate {
+    /**
+     * Назва поля рядка таблиці рейтингів - джерело оцінки.
+     */
+    public static final String RATING_SOURCE = "Source";
+
+    /**
+     * Назва поля рядка таблиці рейтингів - оцінка.
+     */
+    public static final String RATING_VALUE = "Value";
+
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String WP_NS = "http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing";
+    private static final String R_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String A_NS = "http://schemas.openxmlformats.org/drawingml/2006/main";
+    private static final String PIC_NS = "http://schemas.openxmlformats.org/drawingml/2006/picture";
+    private static final String IMAGE_RELATIONSHIP_TYPE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/image";
+
+    private static final String DOCUMENT_PART = "word/document.xml";
+    private static final String RELATIONSHIPS_PART = "word/_rels/document.xml.rels";
+    private static final String CONTENT_TYPES_PART = "[Content_Types].xml";
+    private static final String MEDIA_PART_PREFIX = "word/media/image";
+
+    private static final String FIELD_BEGINS_WITH = "${";
+    private static final String FIELD_ENDS_WITH = "}";
+    private static final String POSTER_FIELD = "poster";
+
+    /**
+     * Інструкції обробки, що позначають місця вставки під час аналізу.
+     */
+    private static final String MARKER = "fluffy-template";
+    private static final Pattern MARKER_PATTERN = Pattern.compile("<\\?" + MARKER + " ([a-z-]+)(?: (\\d+))?\\?>");
+    private static final String MARKER_TEXT = "text";
+    private static final String MARKER_POSTER = "poster";
+    private static final String MARKER_RATINGS_BEGIN = "ratings-begin";
+    private static final String MARKER_RATINGS_END = "ratings-end";
+
+    private static final int EMU_PER_PIXEL = 9525;
+
+    /**
+     * Типи зображень (за типами POI): розширення та тип вмісту.
+     */
+    private static final Map<Integer, ImageType> IMAGE_TYPES = new HashMap<>();
+
+    static {
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_EMF, new ImageType("emf", "image/x-emf", false));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_WMF, new ImageType("wmf", "image/x-wmf", false));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_PICT, new ImageType("pict", "image/pict", false));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_JPEG, new ImageType("jpeg", "image/jpeg", true));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_PNG, new ImageType("png", "image/png", true));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_DIB, new ImageType("dib", "image/dib", false));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_GIF, new ImageType("gif", "image/gif", true));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_TIFF, new ImageType("tiff", "image/tiff", false));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_EPS, new ImageType("eps", "image/x-eps", false));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_BMP, new ImageType("bmp", "image/x-ms-bmp", false));
+        IMAGE_TYPES.put(XWPFDocument.PICTURE_TYPE_WPG, new ImageType("wpg", "image/x-wpg", false));
+    }
+
+    /**
+     * Частини пакета шаблону (назва -> вміст) у порядку їх розташування.
+     */
+    private final Map<String, byte[]> parts;
+
+    /**
+     * Фрагменти word/document.xml.
+     */
+    private final List<Segment> documentSegments;
+
+    /**
+     * word/_rels/document.xml.rels до та після місця вставки зв'язку із
+     * зображенням.
+     */
+    private final byte[] relationshipsHead;
+    private final byte[] relationshipsTail;
+
+    /**
+     * Ідентифікатор зв'язку із зображенням постера.
+     */
+    private final String posterRelationshipId;
+
+    /**
+     * [Content_Types].xml до та після місця вставки типу вмісту зображення.
+     */
+    private final byte[] contentTypesHead;
+    private final byte[] contentTypesTail;
+
+    /**
+     * Розширення, для яких тип вмісту вже визначений у шаблоні.
+     */
+    private final Set<String> defaultExtensions;
+
+    private StreamingDocumentTemplate(Map<String, byte[]> parts, List<Segment> documentSegments,
+                                      String relationships, String posterRelationshipId,
+                                      String contentTypes, Set<String> defaultExtensions) {
+        this.parts = parts;
+        this.documentSegments = documentSegments;
+        int relationshipsEnd = relationships.lastIndexOf("</");
+        this.relationshipsHead = relationships.substring(0, relationshipsEnd).getBytes(StandardCharsets.UTF_8);
+        this.relationshipsTail = relationships.substring(relationshipsEnd).getBytes(StandardCharsets.UTF_8);
+        this.posterRelationshipId = posterRelationshipId;
+        // типи вмісту за розширенням вставляються одразу після відкриваючого
+        // тега кореневого елемента
+        int contentTypesStart = contentTypes.indexOf('>', contentTypes.indexOf("<Types")) + 1;
+        this.contentTypesHead = contentTypes.substring(0, contentTypesStart).getBytes(StandardCharsets.UTF_8);
+        this.contentTypesTail = contentTypes.substring(contentTypesStart).getBytes(StandardCharsets.UTF_8);
+        this.defaultExtensions = defaultExtensions;
+    }
+
+    /**
+     * Компілює шаблон: читає частини пакета та розбиває word/document.xml на
+     * фрагменти.
+     * @param in потік із вмістом шаблону (docx)
+     * @param ratingsTableContent текст, за яким визначається таблиця рейтингів
+     * @return скомпільований шаблон
+     * @throws IOException у випадку помилки читання чи некоректного вмісту
+     *                     шаблону
+     */
+    public static StreamingDocumentTemplate compile(InputStream in, String ratingsTableContent) throws IOException {
+        Map<String, byte[]> parts = new LinkedHashMap<>();
+        try (ZipInputStream zin = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zin.getNextEntry()) != null) {
+                parts.put(entry.getName(), StreamUtils.copyToByteArray(zin));
+            }
+        }
+
+        Document relationships = parse(getPart(parts, RELATIONSHIPS_PART));
+        Set<String> relationshipIds = new HashSet<>();
+        for (Element relationship : elements(relationships.getDocumentElement().getChildNodes())) {
+            relationshipIds.add(relationship.getAttribute("Id"));
+        }
+        // так само визначає ідентифікатор нового зв'язку POI
+        int relationshipNumber = relationshipIds.size() + 1;
+        while (relationshipIds.contains("rId" + relationshipNumber)) {
+            ++relationshipNumber;
+        }
+
+        Set<String> defaultExtensions = new HashSet<>();
+        Document contentTypes = parse(getPart(parts, CONTENT_TYPES_PART));
+        for (Element type : elements(contentTypes.getDocumentElement().getChildNodes())) {
+            if (type.getLocalName().equals("Default")) {
+                defaultExtensions.add(type.getAttribute("Extension").toLowerCase(Locale.ROOT));
+            }
+        }
+
+        return new StreamingDocumentTemplate(parts,
+                compileDocument(parse(getPart(parts, DOCUMENT_PART)), ratingsTableContent),
+                new String(getPart(parts, RELATIONSHIPS_PART), StandardCharsets.UTF_8), "rId" + relationshipNumber,
+                new String(getPart(parts, CONTENT_TYPES_PART), StandardCharsets.UTF_8), defaultExtensions);
+    }
+
+    /**
+     * Повертає документ, що створюється на основі шаблону під час запису.
+     * Значення полів, відсутніх в асоціативному масиві, залишаються без змін.
+     * @param fields асоціативний масив: назва поля -> значення
+     * @param ratings рядки таблиці рейтингів (поля {@link #RATING_SOURCE} та
+     *                {@link #RATING_VALUE})
+     * @param poster постер (якщо null чи тип зображення не підтримується,
+     *               постер не додається)
+     * @return документ, готовий до запису
+     */
+    public FilmDocument newDocument(Map<String, String> fields, List<Map<String, String>> ratings, ImageDTO poster) {
+        return out -> write(out, fields, ratings, poster);
+    }
+
+    private void write(OutputStream out, Map<String, String> fields, List<Map<String, String>> ratings, ImageDTO poster) throws IOException {
+        // зображення непідтримуваного типу не додається (як і в POI)
+        ImageType imageType = poster != null ? IMAGE_TYPES.get(poster.getPictureType()) : null;
+        String mediaName = imageType != null ? getMediaName(imageType) : null;
+        Rendering rendering = new Rendering(fields, ratings, imageType != null ? poster : null, posterRelationshipId);
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (Map.Entry<String, byte[]> part : parts.entrySet()) {
+            String name = part.getKey();
+            zip.putNextEntry(new ZipEntry(name));
+            switch (name) {
+                case DOCUMENT_PART:
+                    // фрагменти невеликі, тому записуються через буфер
+                    BufferedOutputStream document = new BufferedOutputStream(zip, 8192);
+                    writeSegments(document, documentSegments, rendering.fields, rendering);
+                    document.flush();
+                    break;
+                case RELATIONSHIPS_PART:
+                    zip.write(relationshipsHead);
+                    if (mediaName != null) {
+                        write(zip, "<Relationship Id=\"" + posterRelationshipId + "\" Type=\"" + IMAGE_RELATIONSHIP_TYPE
+                                + "\" Target=\"" + mediaName.substring("word/".length()) + "\"/>");
+                    }
+                    zip.write(relationshipsTail);
+                    break;
+                case CONTENT_TYPES_PART:
+                    zip.write(contentTypesHead);
+                    if (imageType != null && !defaultExtensions.contains(imageType.extension)) {
+                        write(zip, "<Default Extension=\"" + imageType.extension + "\" ContentType=\"" + imageType.contentType + "\"/>");
+                    }
+                    zip.write(contentTypesTail);
+                    break;
+                default:
+                    zip.write(part.getValue());
+            }
+            zip.closeEntry();
+        }
+
+        if (mediaName != null) {
+            byte[] data = rendering.poster.getData();
+            ZipEntry entry = new ZipEntry(mediaName);
+            // вже стиснуті формати повторно не стискаються
+            if (imageType.compressed) {
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, data.length);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(data.length);
+                entry.setCompressedSize(data.length);
+                entry.setCrc(crc.getValue());
+            }
+            zip.putNextEntry(entry);
+            zip.write(data);
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    private String getMediaName(ImageType imageType) {
+        int number = 1;
+        while (parts.containsKey(MEDIA_PART_PREFIX + number + "." + imageType.extension)) {
+            ++number;
+        }
+        return MEDIA_PART_PREFIX + number + "." + imageType.extension;
+    }
+
+    private static void writeSegments(OutputStream out, List<Segment> segments, Map<String, String> fields, Rendering rendering) throws IOException {
+        for (Segment segment : segments) {
+            segment.write(out, fields, rendering);
+        }
+    }
+
+    private static byte[] getPart(Map<String, byte[]> parts, String name) throws IOException {
+        byte[] part = parts.get(name);
+        if (part == null) {
+            throw new IOException("Шаблон документа не містить частини " + name);
+        }
+        return part;
+    }
+
+    // ---- аналіз word/document.xml ----
+
+    private static List<Segment> compileDocument(Document document, String ratingsTableContent) throws IOException {
+        Element root = document.getDocumentElement();
+        String wpPrefix = root.lookupPrefix(WP_NS);
+        String rPrefix = root.lookupPrefix(R_NS);
+
+        // таблиця рейтингів визначається так само, як і в POI, до заміни
+        // тексту полів
+        Element body = firstChild(root, "body");
+        Element ratingsTable = body != null ? findTable(children(body, "tbl"), ratingsTableContent) : null;
+
+        List<TextSegment> texts = new ArrayList<>();
+        List<Element> paragraphs = elements(document.getElementsByTagNameNS(W_NS, "p"));
+        for (Element paragraph : paragraphs) {
+            compileParagraph(paragraph, texts);
+        }
+
+        if (ratingsTable != null) {
+            List<Element> rows = children(ratingsTable, "tr");
+            if (!rows.isEmpty()) {
+                // новий рядок - копія останнього, абзаци комірок якого
+                // замінено абзацами з текстом
+                Element row = (Element) rows.get(rows.size() - 1).cloneNode(true);
+                List<Element> cells = children(row, "tc");
+                for (int i = 0; i < cells.size(); ++i) {
+                    Element cell = cells.get(i);
+                    for (Element paragraph : children(cell, "p")) {
+                        cell.removeChild(paragraph);
+                    }
+                    if (i < 2) {
+                        String prefix = cell.getPrefix();
+                        Element paragraph = document.createElementNS(W_NS, qualify(prefix, "p"));
+                        Element run = document.createElementNS(W_NS, qualify(prefix, "r"));
+                        run.appendChild(marker(document, MARKER_TEXT, texts.size()));
+                        texts.add(new TextSegment(prefix, false, Collections.singletonList(new Field(i == 0 ? RATING_SOURCE : RATING_VALUE))));
+                        paragraph.appendChild(run);
+                        cell.appendChild(paragraph);
+                    }
+                }
+                ratingsTable.appendChild(marker(document, MARKER_RATINGS_BEGIN, -1));
+                ratingsTable.appendChild(row);
+                ratingsTable.appendChild(marker(document, MARKER_RATINGS_END, -1));
+            }
+        }
+
+        return split(serialize(document), texts, root.getPrefix(), wpPrefix, rPrefix);
+    }
+
+    // текст абзацу - перші текстові елементи його фрагментів (як у POI);
+    // текст фрагментів, що змінюється заповненням полів, замінюється
+    // позначкою місця вставки
+    private static void compileParagraph(Element paragraph, List<TextSegment> texts) {
+        List<Element> runs = new ArrayList<>();
+        for (Element run : elements(paragraph.getElementsByTagNameNS(W_NS, "r"))) {
+            if (closestParagraph(run) == paragraph) {
+                runs.add(run);
+            }
+        }
+        int size = runs.size();
+        Element[] textElements = new Element[size];
+        String[] originals = new String[size];
+        int[] runEnds = new int[size];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; ++i) {
+            textElements[i] = firstChild(runs.get(i), "t");
+            originals[i] = textElements[i] != null ? textElements[i].getTextContent() : "";
+            sb.append(originals[i]);
+            runEnds[i] = sb.length();
+        }
+        String joined = sb.toString();
+        if (!joined.contains(FIELD_BEGINS_WITH)) {
+            return;
+        }
+
+        // поле повністю переноситься у фрагмент, з якого воно починається
+        List<List<Object>> results = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            results.add(new ArrayList<>());
+        }
+        int length = joined.length();
+        int run = 0;
+        int position = 0;
+        while (position < length) {
+            while (position >= runEnds[run]) {
+                ++run;
+            }
+            if (joined.startsWith(FIELD_BEGINS_WITH, position)) {
+                int end = joined.indexOf(FIELD_ENDS_WITH, position + FIELD_BEGINS_WITH.length());
+                if (end >= 0) {
+                    results.get(run).add(new Field(joined.substring(position + FIELD_BEGINS_WITH.length(), end)));
+                    position = end + FIELD_ENDS_WITH.length();
+                    continue;
+                }
+            }
+            appendLiteral(results.get(run), joined.charAt(position));
+            ++position;
+        }
+
+        for (int i = 0; i < size; ++i) {
+            List<Object> parts = results.get(i);
+            // поле постера замінюється зображенням
+            boolean poster = parts.removeIf(part -> part instanceof Field && ((Field) part).name.equals(POSTER_FIELD));
+            boolean literal = parts.isEmpty() || (parts.size() == 1 && parts.get(0) instanceof StringBuilder);
+            if (!poster && literal && (parts.isEmpty() ? "" : parts.get(0).toString()).equals(originals[i])) {
+                continue;
+            }
+
+            Element runElement = runs.get(i);
+            Document document = runElement.getOwnerDocument();
+            Node marker = marker(document, MARKER_TEXT, texts.size());
+            Element textElement = textElements[i];
+            if (textElement != null) {
+                boolean preserve = "preserve".equals(textElement.getAttributeNS(XMLConstants.XML_NS_URI, "space"));
+                texts.add(new TextSegment(textElement.getPrefix(), preserve, toParts(parts)));
+                runElement.replaceChild(marker, textElement);
+            } else {
+                texts.add(new TextSegment(runElement.getPrefix(), false, toParts(parts)));
+                runElement.appendChild(marker);
+            }
+            if (poster) {
+                runElement.appendChild(marker(document, MARKER_POSTER, -1));
+            }
+        }
+    }
+
+    private static void appendLiteral(List<Object> parts, char c) {
+        if (parts.isEmpty() || !(parts.get(parts.size() - 1) instanceof StringBuilder)) {
+            parts.add(new StringBuilder());
+        }
+        ((StringBuilder) parts.get(parts.size() - 1)).append(c);
+    }
+
+    private static List<Object> toParts(List<Object> parts) {
+        List<Object> result = new ArrayList<>(parts.size());
+        for (Object part : parts) {
+            result.add(part instanceof StringBuilder ? part.toString() : part);
+        }
+        return result;
+    }
+
+    // таблиця, комірка якої містить вказаний текст; порядок обходу такий
+    // самий, як у XWPFDocumentManipulator.getTableWithContent
+    private static Element findTable(List<Element> tables, String content) {
+        for (Element table : tables) {
+            for (Element row : children(table, "tr")) {
+                for (Element cell : children(row, "tc")) {
+                    if (cellContainsContent(cell, content)) {
+                        return table;
+                    }
+                    Element result = findTable(children(cell, "tbl"), content);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean cellContainsContent(Element cell, String content) {
+        for (Element paragraph : children(cell, "p")) {
+            for (Element run : elements(paragraph.getElementsByTagNameNS(W_NS, "r"))) {
+                Element text = firstChild(run, "t");
+                if (closestParagraph(run) == paragraph && text != null && text.getTextContent().contains(content)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<Segment> split(String xml, List<TextSegment> texts, String wPrefix, String wpPrefix, String rPrefix) {
+        List<Segment> segments = new ArrayList<>();
+        List<Segment> current = segments;
+        List<Segment> row = null;
+        Matcher matcher = MARKER_PATTERN.matcher(xml);
+        int position = 0;
+        while (matcher.find()) {
+            if (matcher.start() > position) {
+                current.add(new StaticSegment(xml.substring(position, matcher.start()).getBytes(StandardCharsets.UTF_8)));
+            }
+            switch (matcher.group(1)) {
+                case MARKER_TEXT:
+                    current.add(texts.get(Integer.parseInt(matcher.group(2))));
+                    break;
+                case MARKER_POSTER:
+                    current.add(new PosterSegment(wPrefix, wpPrefix, rPrefix));
+                    break;
+                case MARKER_RATINGS_BEGIN:
+                    row = new ArrayList<>();
+                    current = row;
+                    break;
+                case MARKER_RATINGS_END:
+                    segments.add(new RatingsSegment(row));
+                    current = segments;
+                    break;
+                default:
+                    throw new IllegalStateException(matcher.group());
+            }
+            position = matcher.end();
+        }
+        if (position < xml.length()) {
+            current.add(new StaticSegment(xml.substring(position).getBytes(StandardCharsets.UTF_8)));
+        }
+        return segments;
+    }
+
+    private static Document parse(byte[] xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Некоректний вміст шаблону документа", e);
+        }
+    }
+
+    private static String serialize(Document document) throws IOException {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, StandardCharsets.UTF_8.name());
+            transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
+            StringWriter writer = new StringWriter();
+            transformer.transform(new DOMSource(document), new StreamResult(writer));
+            return writer.toString();
+        } catch (TransformerException e) {
+            throw new IOException("Не вдалося скомпілювати шаблон документа", e);
+        }
+    }
+
+    private static Node marker(Document document, String type, int index) {
+        return document.createProcessingInstruction(MARKER, index >= 0 ? type + " " + index : type);
+    }
+
+    private static Element closestParagraph(Element element) {
+        Node node = element.getParentNode();
+        while (node != null && !(node instanceof Element && W_NS.equals(node.getNamespaceURI()) && "p".equals(node.getLocalName()))) {
+            node = node.getParentNode();
+        }
+        return (Element) node;
+    }
+
+    private static Element firstChild(Element parent, String localName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && W_NS.equals(node.getNamespaceURI()) && localName.equals(node.getLocalName())) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+
+    private static List<Element> children(Element parent, String localName) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && W_NS.equals(node.getNamespaceURI()) && localName.equals(node.getLocalName())) {
+                result.add((Element) node);
+            }
+        }
+        return result;
+    }
+
+    private static List<Element> elements(NodeList nodes) {
+        List<Element> result = new ArrayList<>(nodes.getLength());
+        for (int i = 0; i < nodes.getLength(); ++i) {
+            if (nodes.item(i) instanceof Element) {
+                result.add((Element) nodes.item(i));
+            }
+        }
+        return result;
+    }
+
+    private static String qualify(String prefix, String localName) {
+        return prefix != null ? prefix + ":" + localName : localName;
+    }
+
+    // ---- запис ----
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // екранування тексту та значень атрибутів; символи, недопустимі в XML,
+    // пропускаються
+    private static String escape(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            String replacement;
+            switch (c) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '"': replacement = "&quot;"; break;
+                default:
+                    replacement = c < 0x20 && c != '\t' && c != '\n' && c != '\r' ? "" : null;
+            }
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb != null ? sb.toString() : text;
+    }
+
+    /**
+     * Стан створення документа.
+     */
+    private static final class Rendering {
+        private final Map<String, String> fields;
+        private final List<Map<String, String>> ratings;
+        private final ImageDTO poster;
+        private final String posterRelationshipId;
+
+        private Rendering(Map<String, String> fields, List<Map<String, String>> ratings, ImageDTO poster, String posterRelationshipId) {
+            this.fields = fields;
+            this.ratings = ratings;
+            this.poster = poster;
+            this.posterRelationshipId = posterRelationshipId;
+        }
+    }
+
+    private interface Segment {
+        void write(OutputStream out, Map<String, String> fields, Rendering rendering) throws IOException;
+    }
+
+    private static final class StaticSegment implements Segment {
+        private final byte[] data;
+
+        private StaticSegment(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public void write(OutputStream out, Map<String, String> fields, Rendering rendering) throws IOException {
+            out.write(data);
+        }
+    }
+
+    private static final class Field {
+        private final String name;
+
+        private Field(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Текстовий елемент фрагмента, що містить поля. Пробіли на початку чи в
+     * кінці тексту зберігаються (xml:space="preserve"), як і в POI.
+     */
+    private static final class TextSegment implements Segment {
+        private final String prefix;
+        private final boolean preserve;
+        private final List<Object> parts;
+
+        private TextSegment(String prefix, boolean preserve, List<Object> parts) {
+            this.prefix = prefix;
+            this.preserve = preserve;
+            this.parts = parts;
+        }
+
+        @Override
+        public void write(OutputStream out, Map<String, String> fields, Rendering rendering) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof Field) {
+                    String name = ((Field) part).name;
+                    String value = fields.get(name);
+                    text.append(value != null ? value : FIELD_BEGINS_WITH + name + FIELD_ENDS_WITH);
+                } else {
+                    text.append((String) part);
+                }
+            }
+            boolean preserveSpaces = preserve || (text.length() > 0
+                    && (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1))));
+
+            String element = qualify(prefix, "t");
+            StringBuilder sb = new StringBuilder(text.length() + 48).append('<').append(element);
+            if (preserveSpaces) {
+                sb.append(" xml:space=\"preserve\"");
+            }
+            sb.append('>').append(escape(text.toString())).append("</").append(element).append('>');
+            StreamingDocumentTemplate.write(out, sb.toString());
+        }
+    }
+
+    private static final class RatingsSegment implements Segment {
+        private final List<Segment> row;
+
+        private RatingsSegment(List<Segment> row) {
+            this.row = row;
+        }
+
+        @Override
+        public void write(OutputStream out, Map<String, String> fields, Rendering rendering) throws IOException {
+            for (Map<String, String> rating : rendering.ratings) {
+                writeSegments(out, row, rating, rendering);
+            }
+        }
+    }
+
+    /**
+     * Зображення постера - така сама розмітка, як у XWPFRun.addPicture.
+     */
+    private static final class PosterSegment implements Segment {
+        private final String drawing;
+        private final String wp;
+        private final String r;
+
+        /**
+         * Оголошення просторів імен, префікси яких не визначені в шаблоні.
+         */
+        private final String wpDeclaration;
+        private final String rDeclaration;
+
+        private PosterSegment(String wPrefix, String wpPrefix, String rPrefix) {
+            this.drawing = qualify(wPrefix, "drawing");
+            this.wp = wpPrefix != null ? wpPrefix : "wp";
+            this.r = rPrefix != null ? rPrefix : "r";
+            this.wpDeclaration = wpPrefix != null ? "" : " xmlns:wp=\"" + WP_NS + "\"";
+            this.rDeclaration = rPrefix != null ? "" : " xmlns:r=\"" + R_NS + "\"";
+        }
+
+        @Override
+        public void write(OutputStream out, Map<String, String> fields, Rendering rendering) throws IOException {
+            ImageDTO poster = rendering.poster;
+            if (poster == null) {
+                return;
+            }
+            long cx = (long) poster.getWidth() * EMU_PER_PIXEL;
+            long cy = (long) poster.getHeight() * EMU_PER_PIXEL;
+            String descr = escape(poster.getFilename() != null ? poster.getFilename() : "");
+            StreamingDocumentTemplate.write(out, "<" + drawing + "><" + wp + ":inline" + wpDeclaration + " distT=\"0\" distR=\"0\" distB=\"0\" distL=\"0\">"
+                    + "<" + wp + ":extent cx=\"" + cx + "\" cy=\"" + cy + "\"/>"
+                    + "<" + wp + ":docPr id=\"0\" name=\"Drawing 0\" descr=\"" + descr + "\"/>"
+                    + "<a:graphic xmlns:a=\"" + A_NS + "\"><a:graphicData uri=\"" + PIC_NS + "\">"
+                    + "<pic:pic xmlns:pic=\"" + PIC_NS + "\"><pic:nvPicPr><pic:cNvPr id=\"0\" name=\"Picture 0\" descr=\"" + descr + "\"/>"
+                    + "<pic:cNvPicPr><a:picLocks noChangeAspect=\"true\"/></pic:cNvPicPr></pic:nvPicPr>"
+                    + "<pic:blipFill><a:blip" + rDeclaration + " " + r + ":embed=\"" + rendering.posterRelationshipId + "\"/>"
+                    + "<a:stretch><a:fillRect/></a:stretch></pic:blipFill>"
+                    + "<pic:spPr><a:xfrm><a:off x=\"0\" y=\"0\"/><a:ext cx=\"" + cx + "\" cy=\"" + cy + "\"/></a:xfrm>"
+                    + "<a:prstGeom prst=\"rect\"><a:avLst/></a:prstGeom></pic:spPr></pic:pic></a:graphicData></a:graphic>"
+                    + "</" + wp + ":inline></" + drawing + ">");
+        }
+    }
+
+    private static final class ImageType {
+        private final String extension;
+        private final String contentType;
+
+        /**
+         * Чи стиснутий формат (такі зображення зберігаються без стиснення).
+         */
+        private final boolean compressed;
+
+        private ImageType(String extension, String contentType, boolean compressed) {
+            this.extension = extension;
+            this.contentType = contentType;
+            this.compressed = compressed;
+        }
+    }
+}
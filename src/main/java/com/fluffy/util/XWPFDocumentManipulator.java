@@ -11,7 +11,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 public class XWPFDocumentManipulator {
     private static String FIELD_BEGINS_WITH = "${";
@@ -95,11 +94,106 @@ public class XWPFDocumentManipulator {
         return findContentInTables(document.getTables(), content);
     }
 
+    /**
+     * Заповнює поля виду ${поле} у всьому документі значеннями з
+     * асоціативного масиву за один обхід документа. Поля, розбиті текстовим
+     * редактором на декілька фрагментів (XWPFRun), також розпізнаються;
+     * значення поля отримує форматування фрагмента, з якого поле починається.
+     * Поля, відсутні в масиві, залишаються без змін, але об'єднуються в один
+     * фрагмент (для подальшої обробки, наприклад, вставки зображення).
+     * @param document документ
+     * @param mapper асоціативний масив: назва поля -> значення
+     */
     public static void bindFields(XWPFDocument document, Map<String, String> mapper) {
-        Set<String> keys = mapper.keySet();
-        for (String key : keys) {
-            String value = mapper.get(key);
-            replaceText(document, FIELD_BEGINS_WITH + key + FIELD_ENDS_WITH, value);
+        bindFieldsInParagraphs(document.getParagraphs(), mapper);
+        bindFieldsInTables(document.getTables(), mapper);
+    }
+
+    /**
+     * Заповнює поля виду ${поле} лише у вказаних абзацах (наприклад,
+     * проіндексованих абзацах скомпільованого шаблону).
+     * @param paragraphs абзаци
+     * @param mapper асоціативний масив: назва поля -> значення
+     */
+    public static void bindFields(List<XWPFParagraph> paragraphs, Map<String, String> mapper) {
+        bindFieldsInParagraphs(paragraphs, mapper);
+    }
+
+    private static void bindFieldsInParagraphs(List<XWPFParagraph> paragraphs, Map<String, String> mapper) {
+        for (XWPFParagraph p : paragraphs) {
+            bindFieldsInParagraph(p, mapper);
+        }
+    }
+
+    private static void bindFieldsInTables(List<XWPFTable> tables, Map<String, String> mapper) {
+        if (tables == null || tables.isEmpty()) {
+            return;
+        }
+
+        for (XWPFTable table : tables) {
+            for (XWPFTableRow row : table.getRows()) {
+                for (XWPFTableCell cell : row.getTableCells()) {
+                    bindFieldsInParagraphs(cell.getParagraphs(), mapper);
+                    bindFieldsInTables(cell.getTables(), mapper);
+                }
+            }
+        }
+    }
+
+    private static void bindFieldsInParagraph(XWPFParagraph paragraph, Map<String, String> mapper) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        if (runs == null || runs.isEmpty()) {
+            return;
+        }
+
+        // текст абзацу та межі фрагментів у ньому
+        int size = runs.size();
+        String[] texts = new String[size];
+        int[] runEnds = new int[size];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; ++i) {
+            String text = runs.get(i).getText(0);
+            texts[i] = text != null ? text : "";
+            sb.append(texts[i]);
+            runEnds[i] = sb.length();
+        }
+        String joined = sb.toString();
+        if (!joined.contains(FIELD_BEGINS_WITH)) {
+            return;
+        }
+
+        // новий текст кожного фрагмента: поле повністю переноситься у
+        // фрагмент, з якого воно починається
+        StringBuilder[] results = new StringBuilder[size];
+        int length = joined.length();
+        int run = 0;
+        int position = 0;
+        while (position < length) {
+            while (position >= runEnds[run]) {
+                ++run;
+            }
+            if (results[run] == null) {
+                results[run] = new StringBuilder();
+            }
+            if (joined.startsWith(FIELD_BEGINS_WITH, position)) {
+                int end = joined.indexOf(FIELD_ENDS_WITH, position + FIELD_BEGINS_WITH.length());
+                if (end >= 0) {
+                    String value = mapper.get(joined.substring(position + FIELD_BEGINS_WITH.length(), end));
+                    int next = end + FIELD_ENDS_WITH.length();
+                    results[run].append(value != null ? value : joined.substring(position, next));
+                    position = next;
+                    continue;
+                }
+            }
+            results[run].append(joined.charAt(position));
+            ++position;
+        }
+
+        for (int i = 0; i < size; ++i) {
+            String text = results[i] != null ? results[i].toString() : "";
+            if (!text.equals(texts[i])) {
+                runs.get(i).setText(text, 0);
+            }
         }
     }
 
@@ -144,6 +238,10 @@ public class XWPFDocumentManipulator {
         bindImageToFieldInTables(document.getTables(), field, imageDTO);
     }
 
+    public static void bindImageToField(List<XWPFParagraph> paragraphs, String target, ImageDTO imageDTO) {
+        bindImageToFieldInParagraphs(paragraphs, FIELD_BEGINS_WITH + target + FIELD_ENDS_WITH, imageDTO);
+    }
+
     public static void removeAllParagraphs(XWPFTableCell cell) {
         int size = cell.getParagraphs().size();
         for (int i = 0; i < size; ++i) {
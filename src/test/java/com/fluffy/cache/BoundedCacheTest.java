@@ -0,0 +1,174 @@
+package com.fluffy.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тести обмеженого кешу: порядок витіснення, ліміти кількості записів та
+ * ваги, час життя записів, статистика та завантаження відсутніх значень.
+ * @author Сивоконь Вадим
+ */
+class BoundedCacheTest {
+    /**
+     * Кеш з одним сегментом, у якому вага значення - довжина рядка.
+     */
+    private static BoundedCache createCache(int maxEntries, long maxBytes, long ttlSeconds) {
+        return new BoundedCache("test", maxEntries, maxBytes, ttlSeconds, 1, value -> ((String) value).length());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() {
+        BoundedCache cache = createCache(3, 1000, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        // звернення до "a" робить найдавніше використаним запис "b"
+        assertNotNull(cache.get("a"));
+        cache.put("d", "4");
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void evictsEntriesToFitByteBudget() {
+        BoundedCache cache = createCache(100, 10, 0);
+        cache.put("a", "xxxx");
+        cache.put("b", "xxxx");
+        cache.put("c", "xxxx");
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(8, cache.weightedSize());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void rejectsValueLargerThanSegment() {
+        BoundedCache cache = createCache(100, 10, 0);
+        cache.put("a", "xxxx");
+        cache.put("big", "xxxxxxxxxxx");
+
+        assertNull(cache.get("big"));
+        // запис, що вже є в кеші, не витісняється через завелике значення
+        assertNotNull(cache.get("a"));
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(4, cache.weightedSize());
+    }
+
+    @Test
+    void replacingValueUpdatesWeight() {
+        BoundedCache cache = createCache(100, 100, 0);
+        cache.put("a", "xxxx");
+        cache.put("a", "xx");
+
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.weightedSize());
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() throws InterruptedException {
+        BoundedCache cache = createCache(100, 1000, 1);
+        cache.put("a", "1");
+        assertNotNull(cache.get("a"));
+
+        Thread.sleep(1100);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void countsHitsMissesPutsAndEvictions() {
+        BoundedCache cache = createCache(1, 1000, 0);
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.put("b", "2");
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getPutCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void putIfAbsentKeepsExistingValue() {
+        BoundedCache cache = createCache(100, 1000, 0);
+        assertNull(cache.putIfAbsent("a", "1"));
+
+        Cache.ValueWrapper existing = cache.putIfAbsent("a", "2");
+
+        assertNotNull(existing);
+        assertEquals("1", existing.get());
+        assertEquals("1", cache.get("a", String.class));
+        assertEquals(1, cache.getPutCount());
+    }
+
+    @Test
+    void loaderFailureIsReported() {
+        BoundedCache cache = createCache(100, 1000, 0);
+
+        Cache.ValueRetrievalException e = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get("a", () -> {
+                    throw new IllegalStateException("помилка");
+                }));
+
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertNull(cache.get("a"));
+        // після невдалого завантаження значення завантажується знову
+        assertEquals("1", cache.get("a", () -> "1"));
+    }
+
+    @Test
+    void concurrentMissesRunLoaderOnce() throws Exception {
+        BoundedCache cache = createCache(100, 1000, 0);
+        int threads = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                results.add(pool.submit(() -> cache.get("a", () -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    // завантаження триває, доки решта потоків не звернеться
+                    // до кешу
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                    return "value";
+                })));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.getPutCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
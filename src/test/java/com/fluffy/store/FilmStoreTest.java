@@ -0,0 +1,178 @@
+package com.fluffy.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тести сховища записів про фільми: збереження записів між відкриттями,
+ * відновлення після пошкодження кінця журналу, ущільнення та час
+ * зберігання записів.
+ * @author Сивоконь Вадим
+ */
+class FilmStoreTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    /**
+     * Розмір службових полів запису (довжина, CRC32, час запису, довжина
+     * ключа).
+     */
+    private static final int RECORD_OVERHEAD = 20;
+
+    private static final String PADDING = "xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx";
+
+    @TempDir
+    Path directory;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String get(FilmStore store, String key) {
+        FilmStore.StoredValue stored = store.get(key);
+        return stored != null ? new String(stored.getValue(), StandardCharsets.UTF_8) : null;
+    }
+
+    private FilmStore open(long retentionSeconds) throws IOException {
+        return new FilmStore(directory, SEGMENT_SIZE, retentionSeconds, 0.5);
+    }
+
+    @Test
+    void keepsRecordsAfterReopen() throws IOException {
+        long before = System.currentTimeMillis();
+        try (FilmStore store = open(0)) {
+            store.put("tt1/short", bytes("перший"));
+            store.put("tt2/short", bytes("другий"));
+            store.put("tt1/short", bytes("оновлений"));
+        }
+
+        try (FilmStore store = open(0)) {
+            assertEquals(2, store.size());
+            assertEquals("оновлений", get(store, "tt1/short"));
+            assertEquals("другий", get(store, "tt2/short"));
+            assertNull(get(store, "tt3/short"));
+            long writtenAt = store.get("tt2/short").getWrittenAt();
+            assertTrue(writtenAt >= before && writtenAt <= System.currentTimeMillis());
+        }
+    }
+
+    @Test
+    void recoveryKeepsValidPrefixBeforeCorruptedRecord() throws IOException {
+        try (FilmStore store = open(0)) {
+            store.put("a", bytes("1111"));
+            store.put("b", bytes("2222"));
+            store.put("c", bytes("3333"));
+        }
+        // пошкодження значення третього запису
+        int recordSize = RECORD_OVERHEAD + 1 + 4;
+        corrupt(directory.resolve("00000001.segment"), 2 * recordSize + RECORD_OVERHEAD + 1);
+
+        try (FilmStore store = open(0)) {
+            assertEquals("1111", get(store, "a"));
+            assertEquals("2222", get(store, "b"));
+            assertNull(get(store, "c"));
+            // новий запис дописується на місце пошкодженого
+            store.put("d", bytes("4444"));
+        }
+
+        try (FilmStore store = open(0)) {
+            assertEquals(3, store.size());
+            assertEquals("4444", get(store, "d"));
+            assertNull(get(store, "c"));
+        }
+    }
+
+    @Test
+    void recoveryStopsAtTornRecord() throws IOException {
+        try (FilmStore store = open(0)) {
+            store.put("a", bytes("1111"));
+            store.put("b", bytes("2222"));
+        }
+        // недописаний запис: друга половина другого запису - нулі
+        int recordSize = RECORD_OVERHEAD + 1 + 4;
+        try (FileChannel channel = FileChannel.open(directory.resolve("00000001.segment"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(recordSize / 2), recordSize + recordSize / 2);
+        }
+
+        try (FilmStore store = open(0)) {
+            assertEquals(1, store.size());
+            assertEquals("1111", get(store, "a"));
+            assertNull(get(store, "b"));
+        }
+    }
+
+    @Test
+    void compactionKeepsOnlyNewestLiveValues() throws IOException {
+        Map<String, String> expected = new HashMap<>();
+        try (FilmStore store = open(0)) {
+            // кожен ключ перезаписується кілька разів, тому перші сегменти
+            // містять переважно замінені значення
+            for (int round = 0; round < 10; ++round) {
+                for (int i = 0; i < 20; ++i) {
+                    String value = "значення-" + round + "-" + i + "-" + PADDING;
+                    store.put("tt" + i, bytes(value));
+                    expected.put("tt" + i, value);
+                }
+            }
+            int segmentsBefore = store.segmentCount();
+            assertTrue(segmentsBefore > 2);
+
+            store.compact();
+
+            assertTrue(store.segmentCount() < segmentsBefore);
+            assertEquals(20, store.size());
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), get(store, entry.getKey()));
+            }
+        }
+
+        // після повторного відкриття замінені значення не відновлюються
+        try (FilmStore store = open(0)) {
+            assertEquals(20, store.size());
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), get(store, entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void expiredRecordsAreAbsentAndRemovedByCompaction() throws IOException, InterruptedException {
+        try (FilmStore store = open(1)) {
+            store.put("a", bytes("1111"));
+            assertEquals("1111", get(store, "a"));
+
+            Thread.sleep(1100);
+            store.put("b", bytes("2222"));
+
+            assertNull(get(store, "a"));
+            assertEquals("2222", get(store, "b"));
+            Map<String, String> visited = new HashMap<>();
+            store.forEach((key, stored) -> visited.put(key, new String(stored.getValue(), StandardCharsets.UTF_8)), 100);
+            assertEquals(1, visited.size());
+            assertEquals("2222", visited.get("b"));
+
+            store.compact();
+            assertEquals(1, store.size());
+        }
+    }
+
+    private static void corrupt(Path path, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, offset);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0xFF));
+            buffer.rewind();
+            channel.write(buffer, offset);
+        }
+    }
+}
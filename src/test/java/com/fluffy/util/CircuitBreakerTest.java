@@ -0,0 +1,160 @@
+package com.fluffy.util;
+
+import com.fluffy.exceptions.ExternalServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тести запобіжника: розмикання за часткою помилок та повільних звернень,
+ * пробні звернення після розмикання та результати звернень, розпочатих до
+ * зміни стану.
+ * @author Сивоконь Вадим
+ */
+class CircuitBreakerTest {
+    private static final long OPEN_MILLIS = 100;
+
+    private static CircuitBreaker createBreaker(int windowSize, int minCalls, long slowCallMillis, int halfOpenCalls) {
+        return new CircuitBreaker("test", windowSize, minCalls, 0.5, slowCallMillis, 0.5, OPEN_MILLIS, halfOpenCalls);
+    }
+
+    private static CompletableFuture<String> succeed(CircuitBreaker breaker) {
+        return breaker.execute(() -> CompletableFuture.completedFuture("ok"));
+    }
+
+    private static CompletableFuture<String> fail(CircuitBreaker breaker) {
+        return breaker.execute(() -> {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("помилка"));
+            return future;
+        });
+    }
+
+    private static void assertNotPermitted(CompletableFuture<String> result) {
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertTrue(e.getCause() instanceof ExternalServiceUnavailableException);
+    }
+
+    private static void open(CircuitBreaker breaker) {
+        for (int i = 0; i < 4; ++i) {
+            fail(breaker);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void opensWhenFailureRateReached() {
+        CircuitBreaker breaker = createBreaker(4, 4, 10_000, 1);
+        succeed(breaker);
+        fail(breaker);
+        succeed(breaker);
+        // звернень у вікні менше мінімальної кількості
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(breaker);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getOpenCount());
+        AtomicInteger calls = new AtomicInteger();
+        assertNotPermitted(breaker.execute(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("ok");
+        }));
+        assertEquals(0, calls.get());
+        assertEquals(1, breaker.getNotPermittedCount());
+    }
+
+    @Test
+    void failuresLeavingWindowAreForgotten() {
+        CircuitBreaker breaker = createBreaker(4, 4, 10_000, 1);
+        fail(breaker);
+        succeed(breaker);
+        succeed(breaker);
+        succeed(breaker);
+        // помилка витісняється з вікна новим успішним зверненням
+        succeed(breaker);
+        fail(breaker);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0.25, breaker.getFailureRate());
+    }
+
+    @Test
+    void opensWhenSlowCallRateReached() throws InterruptedException {
+        CircuitBreaker breaker = createBreaker(4, 4, 20, 1);
+        for (int i = 0; i < 4; ++i) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            breaker.execute(() -> future);
+            if (i % 2 == 0) {
+                Thread.sleep(30);
+            }
+            future.complete("ok");
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialCalls() throws InterruptedException {
+        CircuitBreaker breaker = createBreaker(4, 4, 10_000, 2);
+        open(breaker);
+        assertNotPermitted(succeed(breaker));
+
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        breaker.execute(() -> first);
+        breaker.execute(() -> second);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // пробні звернення вже виконуються
+        assertNotPermitted(succeed(breaker));
+
+        first.complete("ok");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        second.complete("ok");
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals("ok", succeed(breaker).join());
+    }
+
+    @Test
+    void reopensAfterFailedTrialCall() throws InterruptedException {
+        CircuitBreaker breaker = createBreaker(4, 4, 10_000, 2);
+        open(breaker);
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        fail(breaker);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+        assertNotPermitted(succeed(breaker));
+    }
+
+    @Test
+    void ignoresResultsOfCallsStartedInEarlierState() throws InterruptedException {
+        CircuitBreaker breaker = createBreaker(4, 4, 10_000, 1);
+        CompletableFuture<String> early = new CompletableFuture<>();
+        breaker.execute(() -> early);
+        open(breaker);
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        CompletableFuture<String> trial = new CompletableFuture<>();
+        breaker.execute(() -> trial);
+        // помилка звернення, розпочатого до розмикання, не розмикає
+        // запобіжник знову
+        early.completeExceptionally(new IOException("помилка"));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        trial.complete("ok");
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+    }
+}
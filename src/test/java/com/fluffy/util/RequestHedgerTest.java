@@ -0,0 +1,159 @@
+package com.fluffy.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тести дублювання повільних запитів: обчислення затримки другої спроби за
+ * перцентилем останніх вимірювань, запуск другої спроби та скасування
+ * спроби, що програла.
+ * @author Сивоконь Вадим
+ */
+class RequestHedgerTest {
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Спроби, розпочаті під час виконання запиту (завершуються тестом).
+     */
+    private final List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private CompletableFuture<String> newAttempt() {
+        CompletableFuture<String> attempt = new CompletableFuture<>();
+        attempts.add(attempt);
+        return attempt;
+    }
+
+    private void awaitAttempts(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (attempts.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, attempts.size());
+    }
+
+    private static void record(RequestHedger hedger, long durationMillis) {
+        hedger.record(TimeUnit.MILLISECONDS.toNanos(durationMillis));
+    }
+
+    // затримка 10 мс після першого ж вимірювання
+    private RequestHedger createSeededHedger() {
+        RequestHedger hedger = new RequestHedger("test", scheduler, true, 0.95, 10, 100, 1);
+        record(hedger, 10);
+        return hedger;
+    }
+
+    @Test
+    void delayIsPercentileOfSamples() {
+        RequestHedger hedger = new RequestHedger("test", scheduler, true, 0.95, 0, 100, 100);
+        for (int i = 1; i < 100; ++i) {
+            record(hedger, i);
+        }
+        // вимірювань недостатньо
+        assertEquals(-1, hedger.getDelayMillis());
+
+        record(hedger, 100);
+
+        assertEquals(95, hedger.getDelayMillis(), 1e-9);
+    }
+
+    @Test
+    void delayIsNotLessThanMinimum() {
+        RequestHedger hedger = new RequestHedger("test", scheduler, true, 0.5, 30, 10, 10);
+        for (int i = 1; i <= 10; ++i) {
+            record(hedger, i);
+        }
+
+        assertEquals(30, hedger.getDelayMillis(), 1e-9);
+    }
+
+    @Test
+    void delayUsesOnlyRecentSamples() {
+        RequestHedger hedger = new RequestHedger("test", scheduler, true, 0.5, 0, 10, 10);
+        for (int i = 1; i <= 10; ++i) {
+            record(hedger, i);
+        }
+        assertEquals(5, hedger.getDelayMillis(), 1e-9);
+
+        // затримка обчислюється повторно кожні 32 вимірювання: після 96
+        // вимірювань у вікні залишаються 87..96
+        for (int i = 11; i <= 100; ++i) {
+            record(hedger, i);
+        }
+
+        assertEquals(91, hedger.getDelayMillis(), 1e-9);
+    }
+
+    @Test
+    void doesNotHedgeWithoutEnoughSamples() throws InterruptedException {
+        RequestHedger hedger = new RequestHedger("test", scheduler, true, 0.95, 0, 100, 10);
+
+        CompletableFuture<String> result = hedger.execute(this::newAttempt);
+        Thread.sleep(50);
+
+        assertEquals(1, attempts.size());
+        attempts.get(0).complete("first");
+        assertEquals("first", result.join());
+        assertEquals(0, hedger.getHedgeCount());
+    }
+
+    @Test
+    void hedgeWinsAndFirstAttemptIsCancelled() throws InterruptedException {
+        RequestHedger hedger = createSeededHedger();
+
+        CompletableFuture<String> result = hedger.execute(this::newAttempt);
+        awaitAttempts(2);
+        attempts.get(1).complete("second");
+
+        assertEquals("second", result.join());
+        assertTrue(attempts.get(0).isCancelled());
+        assertEquals(1, hedger.getHedgeCount());
+        assertEquals(1, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    void firstAttemptWinsAndHedgeIsCancelled() throws InterruptedException {
+        RequestHedger hedger = createSeededHedger();
+
+        CompletableFuture<String> result = hedger.execute(this::newAttempt);
+        awaitAttempts(2);
+        attempts.get(0).complete("first");
+
+        assertEquals("first", result.join());
+        assertTrue(attempts.get(1).isCancelled());
+        assertEquals(0, hedger.getHedgeWinCount());
+    }
+
+    @Test
+    void failsOnlyWhenAllAttemptsFail() throws InterruptedException {
+        RequestHedger hedger = createSeededHedger();
+
+        CompletableFuture<String> result = hedger.execute(this::newAttempt);
+        awaitAttempts(2);
+        attempts.get(0).completeExceptionally(new IOException("помилка"));
+        assertFalse(result.isDone());
+        attempts.get(1).completeExceptionally(new IOException("помилка"));
+
+        assertTrue(result.isCompletedExceptionally());
+    }
+}
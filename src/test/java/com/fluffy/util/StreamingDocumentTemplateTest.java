@@ -0,0 +1,379 @@
+package com.fluffy.util;
+
+import com.fluffy.cache.BoundedCacheManager;
+import com.fluffy.cache.FilmKey;
+import com.fluffy.cache.FilmRecord;
+import com.fluffy.configs.ApplicationConfig;
+import com.fluffy.configs.CacheConfig;
+import com.fluffy.dtos.FilmDTO;
+import com.fluffy.dtos.GetFilmDataRequest;
+import com.fluffy.exceptions.FilmServiceException;
+import com.fluffy.services.FilmService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRPr;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.util.StreamUtils;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тести потокового створення документів: документ, створений потоково,
+ * порівнюється з документом, створеним за допомогою POI з того самого
+ * шаблону та тих самих даних. word/document.xml порівнюється в канонічній
+ * формі (Canonical XML 1.0), зв'язки та типи вмісту - як множини записів,
+ * оскільки їх порядок не має значення.
+ *
+ * Обидва документи створюються сервісом (як у DocumentRenderBenchmark), тому
+ * порівнюються саме ті способи створення, що використовуються додатком.
+ * @author Сивоконь Вадим
+ */
+class StreamingDocumentTemplateTest {
+    private static final String IMDB_ID = "tt0078748";
+
+    private static final String DOCUMENT_PART = "word/document.xml";
+    private static final String RELATIONSHIPS_PART = "word/_rels/document.xml.rels";
+    private static final String CONTENT_TYPES_PART = "[Content_Types].xml";
+
+    /**
+     * Дані про фільм; значення полів містять символи, що екрануються в XML.
+     */
+    private static final String FILM_JSON = "{"
+            + "\"Title\":\"Alien & \\\"Aliens\\\" <Director's Cut>\","
+            + "\"Year\":\"1979\","
+            + "\"Rated\":\"R\","
+            + "\"Released\":\"22 Jun 1979\","
+            + "\"Runtime\":\"117 min\","
+            + "\"Genre\":\"Horror, Sci-Fi\","
+            + "\"Director\":\"Ridley Scott\","
+            + "\"Writer\":\"Dan O'Bannon & Ronald Shusett\","
+            + "\"Actors\":\"Sigourney Weaver, Tom Skerritt\","
+            + "\"Plot\":\"a < b && c > d; \\\"quoted\\\" text ]]> end\","
+            + "\"Language\":\"English\","
+            + "\"Country\":\"UK, USA\","
+            + "\"Awards\":\"Won 1 Oscar\","
+            + "\"Poster\":\"N/A\","
+            + "\"Ratings\":["
+            + "{\"Source\":\"Internet Movie Database\",\"Value\":\"8.4/10\"},"
+            + "{\"Source\":\"Rotten <Tomatoes> & \\\"Co\\\"\",\"Value\":\"98%\"}"
+            + "],"
+            + "\"Metascore\":\"89\","
+            + "\"imdbRating\":\"8.4\","
+            + "\"imdbVotes\":\"812,843\","
+            + "\"imdbID\":\"" + IMDB_ID + "\","
+            + "\"Type\":\"movie\","
+            + "\"BoxOffice\":\"$81,900,459\","
+            + "\"Production\":\"20th Century Fox\","
+            + "\"Response\":\"True\""
+            + "}";
+
+    @Test
+    void streamingDocumentMatchesPoiDocument() throws Exception {
+        assertEquivalent(readTemplate());
+    }
+
+    @Test
+    void fieldSplitAcrossRunsMatchesPoiDocument() throws Exception {
+        byte[] template = splitFieldRuns(readTemplate());
+        // поле справді розбите на декілька фрагментів тексту
+        String documentXml = new String(readParts(template).get(DOCUMENT_PART), StandardCharsets.UTF_8);
+        assertFalse(documentXml.contains("${title}"));
+
+        Map<String, byte[]> parts = assertEquivalent(template);
+
+        String rendered = canonicalize(parts.get(DOCUMENT_PART));
+        assertFalse(rendered.contains("${"));
+        assertTrue(rendered.contains("Alien &amp; \"Aliens\" &lt;Director's Cut&gt;"));
+    }
+
+    // створює документ обома способами та порівнює частини пакетів
+    private static Map<String, byte[]> assertEquivalent(byte[] template) throws Exception {
+        Map<String, byte[]> streaming = readParts(render("streaming", template));
+        Map<String, byte[]> poi = readParts(render("poi", template));
+
+        assertEquals(canonicalize(poi.get(DOCUMENT_PART)), canonicalize(streaming.get(DOCUMENT_PART)));
+        assertEquals(entries(poi.get(RELATIONSHIPS_PART)), entries(streaming.get(RELATIONSHIPS_PART)));
+        assertEquals(entries(poi.get(CONTENT_TYPES_PART)), entries(streaming.get(CONTENT_TYPES_PART)));
+        // зображення постера додане до обох пакетів
+        assertEquals(mediaParts(poi).keySet(), mediaParts(streaming).keySet());
+        for (Map.Entry<String, byte[]> media : mediaParts(poi).entrySet()) {
+            assertArrayEquals(media.getValue(), streaming.get(media.getKey()));
+        }
+        return streaming;
+    }
+
+    private static byte[] render(String renderer, byte[] template) throws IOException, FilmServiceException {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addLast(new ResourcePropertySource("classpath:application.properties"));
+        env.getPropertySources().addFirst(new MapPropertySource("test",
+                Collections.singletonMap("application.document.renderer", renderer)));
+
+        CacheConfig cacheConfig = new CacheConfig(env);
+        BoundedCacheManager cacheManager = (BoundedCacheManager) cacheConfig.cacheManager();
+        cacheManager.afterPropertiesSet();
+        ApplicationConfig applicationConfig = new ApplicationConfig();
+        String ratingsTableContent = env.getProperty("application.document.ratings-table-content");
+
+        FilmService service = new FilmService(env, applicationConfig.requestParamMapper(env), null, null, null, null, null, null, null, null, Runnable::run,
+                cacheManager, cacheConfig.filmKeyResolver(cacheManager), cacheConfig.titleIndex(), null,
+                DocumentTemplate.compile(new ByteArrayInputStream(template), ratingsTableContent),
+                StreamingDocumentTemplate.compile(new ByteArrayInputStream(template), ratingsTableContent),
+                new StageTimer(new SimpleMeterRegistry()));
+
+        FilmDTO film = FilmParser.parse(FILM_JSON.getBytes(StandardCharsets.UTF_8));
+        cacheManager.getCache("films").put(FilmKey.ofId(IMDB_ID, null), FilmRecord.of(film, System.currentTimeMillis()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FilmDocument document = service.getDocument(new GetFilmDataRequest(null, null, null, IMDB_ID, "json")).join()) {
+            document.write(out);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readTemplate() throws IOException {
+        try (InputStream in = StreamingDocumentTemplateTest.class.getClassLoader().getResourceAsStream("Template.docx")) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+
+    /**
+     * Розбиває кожен фрагмент тексту шаблону, що містить поле ${title} чи
+     * ${imdbRating}, на декілька фрагментів з однаковим форматуванням так,
+     * як це робить текстовий редактор: межі фрагментів проходять усередині
+     * поля.
+     */
+    private static byte[] splitFieldRuns(byte[] template) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template))) {
+            List<XWPFParagraph> paragraphs = new ArrayList<>(document.getParagraphs());
+            addTableParagraphs(document.getTables(), paragraphs);
+            int split = 0;
+            for (XWPFParagraph paragraph : paragraphs) {
+                split += splitRun(paragraph, "${title}", "${ti");
+                split += splitRun(paragraph, "${imdbRating}", "${imdb");
+            }
+            assertEquals(2, split);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void addTableParagraphs(List<XWPFTable> tables, List<XWPFParagraph> paragraphs) {
+        for (XWPFTable table : tables) {
+            for (XWPFTableRow row : table.getRows()) {
+                for (XWPFTableCell cell : row.getTableCells()) {
+                    paragraphs.addAll(cell.getParagraphs());
+                    addTableParagraphs(cell.getTables(), paragraphs);
+                }
+            }
+        }
+    }
+
+    // "... ${title} ..." -> "... ${ti" + "tle" + "} ..."
+    private static int splitRun(XWPFParagraph paragraph, String field, String head) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        for (int i = 0; i < runs.size(); ++i) {
+            XWPFRun run = runs.get(i);
+            String text = run.getText(0);
+            int start = text != null ? text.indexOf(field) : -1;
+            if (start < 0) {
+                continue;
+            }
+            int headEnd = start + head.length();
+            int fieldEnd = start + field.length() - 1;
+            run.setText(text.substring(0, headEnd), 0);
+            insertRun(paragraph, i + 1, run, text.substring(headEnd, fieldEnd));
+            insertRun(paragraph, i + 2, run, text.substring(fieldEnd));
+            return 1;
+        }
+        return 0;
+    }
+
+    private static void insertRun(XWPFParagraph paragraph, int position, XWPFRun source, String text) {
+        XWPFRun run = paragraph.insertNewRun(position);
+        if (source.getCTR().getRPr() != null) {
+            run.getCTR().setRPr((CTRPr) source.getCTR().getRPr().copy());
+        }
+        run.setText(text, 0);
+    }
+
+    private static Map<String, byte[]> readParts(byte[] docx) throws IOException {
+        Map<String, byte[]> parts = new HashMap<>();
+        try (ZipInputStream zin = new ZipInputStream(new ByteArrayInputStream(docx))) {
+            ZipEntry entry;
+            while ((entry = zin.getNextEntry()) != null) {
+                parts.put(entry.getName(), StreamUtils.copyToByteArray(zin));
+            }
+        }
+        return parts;
+    }
+
+    private static Map<String, byte[]> mediaParts(Map<String, byte[]> parts) {
+        Map<String, byte[]> media = new TreeMap<>();
+        for (Map.Entry<String, byte[]> part : parts.entrySet()) {
+            if (part.getKey().startsWith("word/media/")) {
+                media.put(part.getKey(), part.getValue());
+            }
+        }
+        return media;
+    }
+
+    private static Document parse(byte[] xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    }
+
+    /**
+     * Повертає дочірні елементи кореневого елемента (зв'язки чи типи вмісту)
+     * у канонічній формі, без урахування їх порядку.
+     */
+    private static TreeSet<String> entries(byte[] xml) throws Exception {
+        TreeSet<String> entries = new TreeSet<>();
+        for (Node node = parse(xml).getDocumentElement().getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                StringBuilder out = new StringBuilder();
+                canonicalize(node, Collections.<String, String>emptyMap(), out);
+                entries.add(out.toString());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Повертає канонічну форму XML (Canonical XML 1.0 без коментарів):
+     * без оголошення XML, з атрибутами, впорядкованими за простором імен та
+     * назвою, оголошеннями просторів імен лише там, де вони змінюються, та
+     * однаковим екрануванням тексту й значень атрибутів.
+     */
+    private static String canonicalize(byte[] xml) throws Exception {
+        StringBuilder out = new StringBuilder();
+        for (Node node = parse(xml).getFirstChild(); node != null; node = node.getNextSibling()) {
+            canonicalize(node, Collections.<String, String>emptyMap(), out);
+        }
+        return out.toString();
+    }
+
+    private static void canonicalize(Node node, Map<String, String> namespaces, StringBuilder out) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                canonicalizeElement((Element) node, namespaces, out);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                escape(node.getNodeValue(), false, out);
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                out.append("<?").append(node.getNodeName());
+                if (!node.getNodeValue().isEmpty()) {
+                    out.append(' ').append(node.getNodeValue());
+                }
+                out.append("?>");
+                break;
+            default:
+                // коментарі та тип документа не входять до канонічної форми
+        }
+    }
+
+    private static void canonicalizeElement(Element element, Map<String, String> namespaces, StringBuilder out) {
+        // оголошення просторів імен (префікс -> простір імен) та атрибути
+        // (простір імен, назва -> атрибут) у канонічному порядку
+        TreeMap<String, String> declared = new TreeMap<>();
+        TreeMap<String, Attr> attributes = new TreeMap<>();
+        NamedNodeMap map = element.getAttributes();
+        for (int i = 0; i < map.getLength(); ++i) {
+            Attr attribute = (Attr) map.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                String prefix = XMLConstants.XMLNS_ATTRIBUTE.equals(attribute.getName()) ? "" : attribute.getLocalName();
+                declared.put(prefix, attribute.getValue());
+            } else {
+                String namespace = attribute.getNamespaceURI() != null ? attribute.getNamespaceURI() : "";
+                String name = attribute.getLocalName() != null ? attribute.getLocalName() : attribute.getName();
+                attributes.put(namespace + " " + name, attribute);
+            }
+        }
+
+        Map<String, String> inScope = namespaces;
+        out.append('<').append(element.getTagName());
+        for (Map.Entry<String, String> namespace : declared.entrySet()) {
+            String prefix = namespace.getKey();
+            String current = namespaces.containsKey(prefix) ? namespaces.get(prefix) : "";
+            if (current.equals(namespace.getValue())) {
+                continue;
+            }
+            if (inScope == namespaces) {
+                inScope = new HashMap<>(namespaces);
+            }
+            inScope.put(prefix, namespace.getValue());
+            out.append(' ').append(prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix).append("=\"");
+            escape(namespace.getValue(), true, out);
+            out.append('"');
+        }
+        for (Attr attribute : attributes.values()) {
+            out.append(' ').append(attribute.getName()).append("=\"");
+            escape(attribute.getValue(), true, out);
+            out.append('"');
+        }
+        out.append('>');
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            canonicalize(child, inScope, out);
+        }
+        out.append("</").append(element.getTagName()).append('>');
+    }
+
+    private static void escape(String value, boolean attribute, StringBuilder out) {
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&': out.append("&amp;"); break;
+                case '<': out.append("&lt;"); break;
+                case '>':
+                    out.append(attribute ? ">" : "&gt;");
+                    break;
+                case '"':
+                    out.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\t':
+                    out.append(attribute ? "&#x9;" : "\t");
+                    break;
+                case '\n':
+                    out.append(attribute ? "&#xA;" : "\n");
+                    break;
+                case '\r': out.append("&#xD;"); break;
+                default: out.append(c);
+            }
+        }
+    }
+}